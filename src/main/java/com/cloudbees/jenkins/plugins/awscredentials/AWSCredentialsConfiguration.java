@@ -0,0 +1,513 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2026, CloudBees, Inc.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import hudson.Extension;
+import hudson.Util;
+import hudson.util.FormValidation;
+import java.util.List;
+import jenkins.model.GlobalConfiguration;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONObject;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest2;
+import org.kohsuke.stapler.verb.POST;
+import software.amazon.awssdk.regions.Region;
+
+/**
+ * Global settings of the AWS Credentials plugin.
+ */
+@Extension
+@Symbol("awsCredentials")
+public class AWSCredentialsConfiguration extends GlobalConfiguration {
+
+    public static final int DEFAULT_SESSION_CACHE_SIZE = 1000;
+
+    public static final int DEFAULT_SESSION_EXPIRY_MARGIN_SECONDS = 300;
+
+    public static final int DEFAULT_SESSION_REFRESH_IDLE_MINUTES = 60;
+
+    public static final int DEFAULT_HTTP_MAX_CONNECTIONS = 50;
+
+    public static final int DEFAULT_HTTP_CONNECTION_MAX_IDLE_SECONDS = 60;
+
+    public static final int DEFAULT_HTTP_CONNECT_TIMEOUT_SECONDS = 2;
+
+    public static final int DEFAULT_HTTP_READ_TIMEOUT_SECONDS = 30;
+
+    public static final int DEFAULT_STS_API_CALL_TIMEOUT_SECONDS = 60;
+
+    public static final int DEFAULT_STS_MAX_ATTEMPTS = 3;
+
+    public static final int DEFAULT_STS_CIRCUIT_BREAKER_THRESHOLD = 5;
+
+    public static final int DEFAULT_STS_CIRCUIT_BREAKER_OPEN_SECONDS = 30;
+
+    public static final int DEFAULT_STS_RATE_LIMIT = 50;
+
+    private int sessionCacheSize = DEFAULT_SESSION_CACHE_SIZE;
+
+    private int sessionExpiryMarginSeconds = DEFAULT_SESSION_EXPIRY_MARGIN_SECONDS;
+
+    private boolean sessionRefreshAhead = true;
+
+    private int sessionRefreshIdleMinutes = DEFAULT_SESSION_REFRESH_IDLE_MINUTES;
+
+    private boolean prefetchOnQueue;
+
+    private boolean sessionCachePersistent;
+
+    private int healthCheckIntervalHours;
+
+    private int httpMaxConnections = DEFAULT_HTTP_MAX_CONNECTIONS;
+
+    private int httpConnectionMaxIdleSeconds = DEFAULT_HTTP_CONNECTION_MAX_IDLE_SECONDS;
+
+    private boolean httpTcpKeepAlive;
+
+    private int httpConnectTimeoutSeconds = DEFAULT_HTTP_CONNECT_TIMEOUT_SECONDS;
+
+    private int httpReadTimeoutSeconds = DEFAULT_HTTP_READ_TIMEOUT_SECONDS;
+
+    private int stsApiCallTimeoutSeconds = DEFAULT_STS_API_CALL_TIMEOUT_SECONDS;
+
+    private int stsMaxAttempts = DEFAULT_STS_MAX_ATTEMPTS;
+
+    private int stsCircuitBreakerThreshold = DEFAULT_STS_CIRCUIT_BREAKER_THRESHOLD;
+
+    private int stsCircuitBreakerOpenSeconds = DEFAULT_STS_CIRCUIT_BREAKER_OPEN_SECONDS;
+
+    private int stsRateLimit = DEFAULT_STS_RATE_LIMIT;
+
+    private String stsRateLimits;
+
+    private String region;
+
+    private String stsRegions;
+
+    public AWSCredentialsConfiguration() {
+        load();
+    }
+
+    /**
+     * Returns the global configuration, or {@code null} when not running on the controller (e.g. when credentials
+     * are resolved on an agent), in which case callers fall back to the defaults.
+     */
+    @CheckForNull
+    public static AWSCredentialsConfiguration get() {
+        Jenkins jenkins = Jenkins.getInstanceOrNull();
+        return jenkins != null ? GlobalConfiguration.all().get(AWSCredentialsConfiguration.class) : null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return Messages.AWSCredentialsConfiguration_DisplayName();
+    }
+
+    @Override
+    public boolean configure(StaplerRequest2 req, JSONObject json) throws FormException {
+        // checked before binding, so that a rejected form leaves the settings as they were
+        check(doCheckStsRateLimits(json.optString("stsRateLimits")), "stsRateLimits");
+        check(doCheckStsRegions(json.optString("stsRegions")), "stsRegions");
+        boolean wasPersistent = sessionCachePersistent;
+        req.bindJSON(this, json);
+        save();
+        if (wasPersistent && !sessionCachePersistent) {
+            SessionCredentialsStore.get().deleteAll();
+        }
+        if (!prefetchOnQueue) {
+            CredentialsPrefetcher.clear();
+        }
+        return true;
+    }
+
+    private static void check(FormValidation validation, String field) throws FormException {
+        if (validation.kind == FormValidation.Kind.ERROR) {
+            throw new FormException(validation.getMessage(), field);
+        }
+    }
+
+    /**
+     * Maximum number of assumed role sessions kept in memory. {@code 0} disables caching.
+     */
+    public int getSessionCacheSize() {
+        return sessionCacheSize;
+    }
+
+    @DataBoundSetter
+    public void setSessionCacheSize(int sessionCacheSize) {
+        this.sessionCacheSize = Math.max(0, sessionCacheSize);
+    }
+
+    /**
+     * How long before their expiry cached sessions stop being handed out.
+     */
+    public int getSessionExpiryMarginSeconds() {
+        return sessionExpiryMarginSeconds;
+    }
+
+    @DataBoundSetter
+    public void setSessionExpiryMarginSeconds(int sessionExpiryMarginSeconds) {
+        this.sessionExpiryMarginSeconds = Math.max(0, sessionExpiryMarginSeconds);
+    }
+
+    /**
+     * Whether cached sessions are refreshed in the background before they expire.
+     */
+    public boolean isSessionRefreshAhead() {
+        return sessionRefreshAhead;
+    }
+
+    @DataBoundSetter
+    public void setSessionRefreshAhead(boolean sessionRefreshAhead) {
+        this.sessionRefreshAhead = sessionRefreshAhead;
+    }
+
+    /**
+     * How long a cached session may stay unused before it stops being refreshed.
+     */
+    public int getSessionRefreshIdleMinutes() {
+        return sessionRefreshIdleMinutes;
+    }
+
+    @DataBoundSetter
+    public void setSessionRefreshIdleMinutes(int sessionRefreshIdleMinutes) {
+        this.sessionRefreshIdleMinutes = Math.max(0, sessionRefreshIdleMinutes);
+    }
+
+    /**
+     * Whether the credentials recently bound by a job are resolved in the background while its builds wait in the
+     * queue.
+     *
+     * @see CredentialsPrefetcher
+     */
+    public boolean isPrefetchOnQueue() {
+        return prefetchOnQueue;
+    }
+
+    @DataBoundSetter
+    public void setPrefetchOnQueue(boolean prefetchOnQueue) {
+        this.prefetchOnQueue = prefetchOnQueue;
+    }
+
+    /**
+     * Whether cached sessions are also kept on disk, encrypted, so that they are reused after a restart.
+     */
+    public boolean isSessionCachePersistent() {
+        return sessionCachePersistent;
+    }
+
+    @DataBoundSetter
+    public void setSessionCachePersistent(boolean sessionCachePersistent) {
+        this.sessionCachePersistent = sessionCachePersistent;
+    }
+
+    /**
+     * How often all the credentials are checked in the background, {@code 0} not to.
+     *
+     * @see CredentialsHealthCheck
+     */
+    public int getHealthCheckIntervalHours() {
+        return healthCheckIntervalHours;
+    }
+
+    @DataBoundSetter
+    public void setHealthCheckIntervalHours(int healthCheckIntervalHours) {
+        this.healthCheckIntervalHours = Math.max(0, healthCheckIntervalHours);
+    }
+
+    /**
+     * Size of the connection pool shared by all the AWS clients of this plugin.
+     */
+    public int getHttpMaxConnections() {
+        return httpMaxConnections;
+    }
+
+    @DataBoundSetter
+    public void setHttpMaxConnections(int httpMaxConnections) {
+        this.httpMaxConnections = httpMaxConnections > 0 ? httpMaxConnections : DEFAULT_HTTP_MAX_CONNECTIONS;
+    }
+
+    /**
+     * How long a pooled connection may stay idle before it is closed.
+     */
+    public int getHttpConnectionMaxIdleSeconds() {
+        return httpConnectionMaxIdleSeconds;
+    }
+
+    @DataBoundSetter
+    public void setHttpConnectionMaxIdleSeconds(int httpConnectionMaxIdleSeconds) {
+        this.httpConnectionMaxIdleSeconds = Math.max(0, httpConnectionMaxIdleSeconds);
+    }
+
+    /**
+     * Whether TCP keep-alive probes are sent on pooled connections.
+     */
+    public boolean isHttpTcpKeepAlive() {
+        return httpTcpKeepAlive;
+    }
+
+    @DataBoundSetter
+    public void setHttpTcpKeepAlive(boolean httpTcpKeepAlive) {
+        this.httpTcpKeepAlive = httpTcpKeepAlive;
+    }
+
+    /**
+     * How long to wait for a connection to be established.
+     */
+    public int getHttpConnectTimeoutSeconds() {
+        return httpConnectTimeoutSeconds;
+    }
+
+    @DataBoundSetter
+    public void setHttpConnectTimeoutSeconds(int httpConnectTimeoutSeconds) {
+        this.httpConnectTimeoutSeconds =
+                httpConnectTimeoutSeconds > 0 ? httpConnectTimeoutSeconds : DEFAULT_HTTP_CONNECT_TIMEOUT_SECONDS;
+    }
+
+    /**
+     * How long to wait for data on an established connection.
+     */
+    public int getHttpReadTimeoutSeconds() {
+        return httpReadTimeoutSeconds;
+    }
+
+    @DataBoundSetter
+    public void setHttpReadTimeoutSeconds(int httpReadTimeoutSeconds) {
+        this.httpReadTimeoutSeconds =
+                httpReadTimeoutSeconds > 0 ? httpReadTimeoutSeconds : DEFAULT_HTTP_READ_TIMEOUT_SECONDS;
+    }
+
+    /**
+     * How long an STS call may take overall, retries included. {@code 0} for no limit.
+     */
+    public int getStsApiCallTimeoutSeconds() {
+        return stsApiCallTimeoutSeconds;
+    }
+
+    @DataBoundSetter
+    public void setStsApiCallTimeoutSeconds(int stsApiCallTimeoutSeconds) {
+        this.stsApiCallTimeoutSeconds = Math.max(0, stsApiCallTimeoutSeconds);
+    }
+
+    /**
+     * How many times an STS call is attempted before giving up, the first attempt included.
+     */
+    public int getStsMaxAttempts() {
+        return stsMaxAttempts;
+    }
+
+    @DataBoundSetter
+    public void setStsMaxAttempts(int stsMaxAttempts) {
+        this.stsMaxAttempts = stsMaxAttempts > 0 ? stsMaxAttempts : DEFAULT_STS_MAX_ATTEMPTS;
+    }
+
+    /**
+     * How many consecutive STS failures open the circuit of an endpoint and account. {@code 0} disables the circuit
+     * breaker.
+     *
+     * @see StsCircuitBreaker
+     */
+    public int getStsCircuitBreakerThreshold() {
+        return stsCircuitBreakerThreshold;
+    }
+
+    @DataBoundSetter
+    public void setStsCircuitBreakerThreshold(int stsCircuitBreakerThreshold) {
+        this.stsCircuitBreakerThreshold = Math.max(0, stsCircuitBreakerThreshold);
+    }
+
+    /**
+     * How long STS calls fail fast once the circuit is open.
+     */
+    public int getStsCircuitBreakerOpenSeconds() {
+        return stsCircuitBreakerOpenSeconds;
+    }
+
+    @DataBoundSetter
+    public void setStsCircuitBreakerOpenSeconds(int stsCircuitBreakerOpenSeconds) {
+        this.stsCircuitBreakerOpenSeconds = stsCircuitBreakerOpenSeconds > 0
+                ? stsCircuitBreakerOpenSeconds
+                : DEFAULT_STS_CIRCUIT_BREAKER_OPEN_SECONDS;
+    }
+
+    /**
+     * How many STS calls per second go to an endpoint from an account, unless {@link #getStsRateLimits() overridden}.
+     * {@code 0} disables the rate limit.
+     *
+     * @see StsRateLimiter
+     */
+    public int getStsRateLimit() {
+        return stsRateLimit;
+    }
+
+    @DataBoundSetter
+    public void setStsRateLimit(int stsRateLimit) {
+        this.stsRateLimit = Math.max(0, stsRateLimit);
+    }
+
+    /**
+     * Rate limits of given calling accounts or regions, one per line, {@code null} to apply {@link #getStsRateLimit()}
+     * to all.
+     *
+     * @see StsRateLimiter#parse(String)
+     */
+    @CheckForNull
+    public String getStsRateLimits() {
+        return stsRateLimits;
+    }
+
+    @DataBoundSetter
+    public void setStsRateLimits(String stsRateLimits) {
+        this.stsRateLimits = Util.fixEmptyAndTrim(stsRateLimits);
+    }
+
+    public FormValidation doCheckStsRateLimits(@QueryParameter String value) {
+        try {
+            StsRateLimiter.parse(Util.fixEmptyAndTrim(value));
+        } catch (IllegalArgumentException e) {
+            return FormValidation.error(Messages.AWSCredentialsConfiguration_MalformedRateLimit(e.getMessage()));
+        }
+        return FormValidation.ok();
+    }
+
+    /**
+     * Region of the AWS endpoints, {@code null} to detect it.
+     */
+    @CheckForNull
+    public String getRegion() {
+        return region;
+    }
+
+    @DataBoundSetter
+    public void setRegion(String region) {
+        this.region = Util.fixEmptyAndTrim(region);
+    }
+
+    /**
+     * STS regions to call in order of preference, optionally with the URL of their endpoint, {@code null} to call the
+     * STS endpoint of {@link #getRegion()}.
+     *
+     * @see RoutingStsClient#parse(String)
+     */
+    @CheckForNull
+    public String getStsRegions() {
+        return stsRegions;
+    }
+
+    @DataBoundSetter
+    public void setStsRegions(String stsRegions) {
+        this.stsRegions = Util.fixEmptyAndTrim(stsRegions);
+    }
+
+    public FormValidation doCheckStsRegions(@QueryParameter String value) {
+        List<RoutingStsClient.Endpoint> endpoints;
+        try {
+            endpoints = RoutingStsClient.parse(Util.fixEmptyAndTrim(value));
+        } catch (IllegalArgumentException e) {
+            return FormValidation.error(Messages.AWSCredentialsConfiguration_MalformedEndpoint(e.getMessage()));
+        }
+        for (RoutingStsClient.Endpoint endpoint : endpoints) {
+            if (!Region.regions().contains(endpoint.getRegion())) {
+                return FormValidation.warning(Messages.AWSCredentialsConfiguration_UnknownRegion(endpoint.getRegion()));
+            }
+        }
+        return FormValidation.ok();
+    }
+
+    public FormValidation doCheckRegion(@QueryParameter String value) {
+        String name = Util.fixEmptyAndTrim(value);
+        if (name != null && !Region.regions().contains(Region.of(name))) {
+            return FormValidation.warning(Messages.AWSCredentialsConfiguration_UnknownRegion(name));
+        }
+        return FormValidation.ok();
+    }
+
+    @POST
+    public FormValidation doRedetectRegion() {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        return FormValidation.ok(Messages.AWSCredentialsConfiguration_DetectedRegion(ClientRegion.redetect()));
+    }
+
+    public FormValidation doCheckSessionCacheSize(@QueryParameter int value) {
+        return value < 0
+                ? FormValidation.error(Messages.AWSCredentialsConfiguration_NotNegative())
+                : FormValidation.ok();
+    }
+
+    public FormValidation doCheckHttpMaxConnections(@QueryParameter int value) {
+        return value <= 0 ? FormValidation.error(Messages.AWSCredentialsConfiguration_Positive()) : FormValidation.ok();
+    }
+
+    public FormValidation doCheckHttpConnectTimeoutSeconds(@QueryParameter int value) {
+        return value <= 0 ? FormValidation.error(Messages.AWSCredentialsConfiguration_Positive()) : FormValidation.ok();
+    }
+
+    public FormValidation doCheckHttpReadTimeoutSeconds(@QueryParameter int value) {
+        return value <= 0 ? FormValidation.error(Messages.AWSCredentialsConfiguration_Positive()) : FormValidation.ok();
+    }
+
+    public FormValidation doCheckStsApiCallTimeoutSeconds(@QueryParameter int value) {
+        return value < 0
+                ? FormValidation.error(Messages.AWSCredentialsConfiguration_NotNegative())
+                : FormValidation.ok();
+    }
+
+    public FormValidation doCheckStsMaxAttempts(@QueryParameter int value) {
+        return value <= 0 ? FormValidation.error(Messages.AWSCredentialsConfiguration_Positive()) : FormValidation.ok();
+    }
+
+    public FormValidation doCheckStsCircuitBreakerThreshold(@QueryParameter int value) {
+        return value < 0
+                ? FormValidation.error(Messages.AWSCredentialsConfiguration_NotNegative())
+                : FormValidation.ok();
+    }
+
+    public FormValidation doCheckStsRateLimit(@QueryParameter int value) {
+        return value < 0
+                ? FormValidation.error(Messages.AWSCredentialsConfiguration_NotNegative())
+                : FormValidation.ok();
+    }
+
+    public FormValidation doCheckHealthCheckIntervalHours(@QueryParameter int value) {
+        return value < 0
+                ? FormValidation.error(Messages.AWSCredentialsConfiguration_NotNegative())
+                : FormValidation.ok();
+    }
+
+    public FormValidation doCheckSessionExpiryMarginSeconds(@QueryParameter int value) {
+        if (value < 0) {
+            return FormValidation.error(Messages.AWSCredentialsConfiguration_NotNegative());
+        }
+        if (value >= AWSCredentialsImpl.STS_CREDENTIALS_DURATION_SECONDS) {
+            return FormValidation.warning(Messages.AWSCredentialsConfiguration_MarginLongerThanDefaultDuration());
+        }
+        return FormValidation.ok();
+    }
+}
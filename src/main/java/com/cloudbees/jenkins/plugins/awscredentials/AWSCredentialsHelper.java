@@ -1,16 +1,13 @@
 package com.cloudbees.jenkins.plugins.awscredentials;
 
-import com.cloudbees.plugins.credentials.CredentialsMatchers;
-import com.cloudbees.plugins.credentials.CredentialsProvider;
 import com.cloudbees.plugins.credentials.common.AbstractIdCredentialsListBoxModel;
 import com.cloudbees.plugins.credentials.common.StandardListBoxModel;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
 import hudson.model.Item;
 import hudson.model.ItemGroup;
-import hudson.security.ACL;
 import hudson.util.ListBoxModel;
-import java.util.Collections;
+import java.util.Locale;
 import jenkins.model.Jenkins;
 import org.apache.commons.lang.StringUtils;
 
@@ -26,10 +23,7 @@ public class AWSCredentialsHelper {
         if (StringUtils.isBlank(credentialsId)) {
             return null;
         }
-        return (AmazonWebServicesCredentials) CredentialsMatchers.firstOrNull(
-                CredentialsProvider.lookupCredentials(
-                        AmazonWebServicesCredentials.class, context, ACL.SYSTEM, Collections.EMPTY_LIST),
-                CredentialsMatchers.withId(credentialsId));
+        return CredentialsIndex.get().find(credentialsId, context);
     }
 
     private static boolean hasPermission(ItemGroup context) {
@@ -43,10 +37,50 @@ public class AWSCredentialsHelper {
     public static ListBoxModel doFillCredentialsIdItems(ItemGroup context) {
         AbstractIdCredentialsListBoxModel result = new StandardListBoxModel().includeEmptyValue();
         if (hasPermission(context)) {
-            result = result.withMatching(
-                    CredentialsMatchers.always(),
-                    CredentialsProvider.lookupCredentials(
-                            AmazonWebServicesCredentials.class, context, ACL.SYSTEM, Collections.EMPTY_LIST));
+            for (ListBoxModel.Option option : CredentialsIndex.get().options(context)) {
+                result.add(option.name, option.value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Same as {@link #doFillCredentialsIdItems(ItemGroup)}, but only lists a page of the credentials whose id or name
+     * contains {@code filter}, so that pages do not have to receive thousands of entries.
+     *
+     * @param value the current value, which is always listed so that it is not lost.
+     * @param filter text to look for in the id or name, ignoring case, {@code null} to list all the credentials.
+     * @param offset number of matching credentials to skip.
+     * @param limit maximum number of matching credentials to list.
+     */
+    public static ListBoxModel doFillCredentialsIdItems(
+            ItemGroup context, @CheckForNull String value, @CheckForNull String filter, int offset, int limit) {
+        AbstractIdCredentialsListBoxModel result = new StandardListBoxModel().includeEmptyValue();
+        if (!hasPermission(context)) {
+            return result;
+        }
+        String needle = StringUtils.isBlank(filter) ? null : filter.trim().toLowerCase(Locale.ROOT);
+        boolean valueListed = StringUtils.isBlank(value);
+        int skipped = 0;
+        int listed = 0;
+        for (ListBoxModel.Option option : CredentialsIndex.get().options(context)) {
+            boolean isValue = option.value.equals(value);
+            if (needle == null
+                    || option.value.toLowerCase(Locale.ROOT).contains(needle)
+                    || option.name.toLowerCase(Locale.ROOT).contains(needle)) {
+                if (skipped < offset) {
+                    skipped++;
+                } else if (listed < limit) {
+                    result.add(option.name, option.value);
+                    listed++;
+                    valueListed |= isValue;
+                    continue;
+                }
+            }
+            if (isValue && !valueListed) {
+                result.add(option.name, option.value);
+                valueListed = true;
+            }
         }
         return result;
     }
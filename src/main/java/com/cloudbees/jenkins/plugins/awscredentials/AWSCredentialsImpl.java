@@ -26,25 +26,20 @@
 package com.cloudbees.jenkins.plugins.awscredentials;
 
 import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.AWSSessionCredentials;
-import com.amazonaws.auth.BasicAWSCredentials;
-import com.amazonaws.auth.BasicSessionCredentials;
 import com.cloudbees.plugins.credentials.CredentialsDescriptor;
 import com.cloudbees.plugins.credentials.CredentialsScope;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.Extension;
-import hudson.ProxyConfiguration;
 import hudson.Util;
 import hudson.util.FormValidation;
 import hudson.util.Secret;
 import java.net.HttpURLConnection;
 import java.net.URI;
-import java.util.List;
-import java.util.Objects;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Pattern;
 import jenkins.model.Jenkins;
 import org.apache.commons.lang.StringUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
@@ -57,18 +52,21 @@ import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkClientException;
 import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.http.SdkHttpClient;
-import software.amazon.awssdk.http.apache.ApacheHttpClient;
 import software.amazon.awssdk.regions.Region;
-import software.amazon.awssdk.regions.providers.AwsRegionProvider;
-import software.amazon.awssdk.regions.providers.DefaultAwsRegionProviderChain;
 import software.amazon.awssdk.services.ec2.Ec2Client;
 import software.amazon.awssdk.services.ec2.model.DescribeAvailabilityZonesResponse;
 import software.amazon.awssdk.services.sts.StsClient;
 import software.amazon.awssdk.services.sts.StsClientBuilder;
 import software.amazon.awssdk.services.sts.model.AssumeRoleRequest;
 import software.amazon.awssdk.services.sts.model.AssumeRoleResponse;
+import software.amazon.awssdk.services.sts.model.AssumedRoleUser;
+import software.amazon.awssdk.services.sts.model.Credentials;
+import software.amazon.awssdk.services.sts.model.GetCallerIdentityRequest;
+import software.amazon.awssdk.services.sts.model.GetCallerIdentityResponse;
+import software.amazon.awssdk.services.sts.model.GetSessionTokenRequest;
 
 public class AWSCredentialsImpl extends BaseAmazonWebServicesCredentials {
 
@@ -78,6 +76,11 @@ public class AWSCredentialsImpl extends BaseAmazonWebServicesCredentials {
 
     public static final int STS_CREDENTIALS_DURATION_SECONDS = 3600;
 
+    /**
+     * Lifetime of the sessions obtained with an MFA code when {@link #isReuseMfaSession() reused}, the default of STS.
+     */
+    static final int MFA_SESSION_DURATION_SECONDS = 43200;
+
     private final String accessKey;
 
     private final Secret secretKey;
@@ -88,6 +91,8 @@ public class AWSCredentialsImpl extends BaseAmazonWebServicesCredentials {
 
     private volatile Integer stsTokenDuration;
 
+    private volatile boolean reuseMfaSession;
+
     // Old data bound constructor. It is maintained to keep binary compatibility with clients that were using it
     // directly.
     public AWSCredentialsImpl(
@@ -163,71 +168,225 @@ public class AWSCredentialsImpl extends BaseAmazonWebServicesCredentials {
                         : stsTokenDuration;
     }
 
+    /**
+     * Whether an MFA code is exchanged once for a session that is then used to assume the role until it expires,
+     * rather than needed for every role session.
+     */
+    public boolean isReuseMfaSession() {
+        return reuseMfaSession;
+    }
+
+    @DataBoundSetter
+    public void setReuseMfaSession(boolean reuseMfaSession) {
+        this.reuseMfaSession = reuseMfaSession;
+    }
+
     public boolean requiresToken() {
         return !StringUtils.isBlank(iamMfaSerialNumber);
     }
 
     @Override
     public AwsCredentials resolveCredentials() {
-
-        if (StringUtils.isBlank(iamRoleArn)) {
-            if (StringUtils.isBlank(accessKey) && StringUtils.isBlank(secretKey.getPlainText())) {
-                // AWS SDK v2 does not allow blank accessKey and secretKey
-                return null;
-            } else {
-                return AwsBasicCredentials.create(accessKey, secretKey.getPlainText());
-            }
-        } else {
-            AwsCredentialsProvider baseProvider;
-            // Handle the case of delegation to instance profile
-            if (StringUtils.isBlank(accessKey) && StringUtils.isBlank(secretKey.getPlainText())) {
-                baseProvider = null;
+        long start = CredentialsMetrics.RESOLVE.start();
+        try {
+            if (StringUtils.isBlank(iamRoleArn)) {
+                if (StringUtils.isBlank(accessKey) && StringUtils.isBlank(secretKey.getPlainText())) {
+                    // AWS SDK v2 does not allow blank accessKey and secretKey
+                    return null;
+                } else {
+                    return longTermKeys();
+                }
             } else {
-                baseProvider = StaticCredentialsProvider.create(
-                        AwsBasicCredentials.create(accessKey, secretKey.getPlainText()));
+                return SessionCredentialsCache.get().getSession(sessionKey(), fingerprint(), this::assumeRole);
             }
+        } finally {
+            CredentialsMetrics.RESOLVE.stop(start);
+        }
+    }
 
-            StsClient client = buildStsClient(baseProvider);
+    /**
+     * Identifies the role session of this credential, {@code null} if it has no role.
+     */
+    @CheckForNull
+    /*package*/ SessionCredentialsCache.Key sessionKey() {
+        if (StringUtils.isBlank(iamRoleArn)) {
+            return null;
+        }
+        return new SessionCredentialsCache.Key(getId(), iamRoleArn, iamExternalId, this.getStsTokenDuration());
+    }
 
-            AssumeRoleRequest.Builder assumeRequest =
-                    createAssumeRoleRequest(iamRoleArn, iamExternalId).durationSeconds(this.getStsTokenDuration());
+    /**
+     * Assumes the role with STS, bypassing the {@link SessionCredentialsCache}.
+     */
+    /*package*/ AwsSessionCredentials assumeRole() {
+        AssumeRoleRequest.Builder assumeRequest =
+                createAssumeRoleRequest(iamRoleArn, iamExternalId).durationSeconds(this.getStsTokenDuration());
 
-            AssumeRoleResponse assumeResult = client.assumeRole(assumeRequest.build());
+        return toSessionCredentials(getBaseStsClient().assumeRole(assumeRequest.build()));
+    }
 
-            return AwsSessionCredentials.create(
-                    assumeResult.credentials().accessKeyId(),
-                    assumeResult.credentials().secretAccessKey(),
-                    assumeResult.credentials().sessionToken());
+    /**
+     * Assumes the role with the cached MFA session, starting one with the given code if needed.
+     */
+    private AwsSessionCredentials assumeRoleWithMfaSession(@CheckForNull String mfaToken) {
+        AwsSessionCredentials mfaSession = SessionCredentialsCache.get()
+                .getSession(mfaSessionKey(), fingerprint(), () -> getMfaSession(mfaToken), false);
+
+        AssumeRoleRequest.Builder assumeRequest =
+                createAssumeRoleRequest(iamRoleArn, iamExternalId).durationSeconds(this.getStsTokenDuration());
+
+        return toSessionCredentials(getStsClient(getId(), mfaSession).assumeRole(assumeRequest.build()));
+    }
+
+    private AwsSessionCredentials getMfaSession(@CheckForNull String mfaToken) {
+        if (StringUtils.isBlank(mfaToken)) {
+            throw SdkClientException.create("An MFA token is needed to start a new MFA session for " + getId());
         }
+        GetSessionTokenRequest request = GetSessionTokenRequest.builder()
+                .serialNumber(iamMfaSerialNumber)
+                .tokenCode(mfaToken)
+                .durationSeconds(MFA_SESSION_DURATION_SECONDS)
+                .build();
+        return toSessionCredentials(getBaseStsClient().getSessionToken(request).credentials());
     }
 
-    private static Region determineClientRegion() {
-        // Check for available region from the SDK, otherwise specify default
-        AwsRegionProvider sdkRegionLookup = new DefaultAwsRegionProviderChain();
-        try {
-            return sdkRegionLookup.getRegion();
-        } catch (RuntimeException e) {
-            LOGGER.log(Level.WARNING, "Could not find default region using SDK lookup.", e);
-            return Region.US_EAST_1;
+    /**
+     * Resolves the credentials to hand over where only sessions are accepted, such as the credentials endpoint of the
+     * binding: long-term keys are traded for a session obtained with {@code GetSessionToken}.
+     */
+    /*package*/ AwsCredentials resolveSessionCredentials() {
+        if (!StringUtils.isBlank(iamRoleArn) || StringUtils.isBlank(accessKey)) {
+            return resolveCredentials();
         }
+        SessionCredentialsCache.Key key =
+                SessionCredentialsCache.Key.keysSession(getId(), this.getStsTokenDuration());
+        return SessionCredentialsCache.get().getSession(key, fingerprint(), () -> {
+            GetSessionTokenRequest request = GetSessionTokenRequest.builder()
+                    .durationSeconds(this.getStsTokenDuration())
+                    .build();
+            return toSessionCredentials(getBaseStsClient().getSessionToken(request).credentials());
+        });
+    }
+
+    private static AwsSessionCredentials toSessionCredentials(Credentials credentials) {
+        return AwsSessionCredentials.builder()
+                .accessKeyId(credentials.accessKeyId())
+                .secretAccessKey(credentials.secretAccessKey())
+                .sessionToken(credentials.sessionToken())
+                .expirationTime(credentials.expiration())
+                .build();
+    }
+
+    private SessionCredentialsCache.Key mfaSessionKey() {
+        return SessionCredentialsCache.Key.mfaSession(getId(), iamMfaSerialNumber, MFA_SESSION_DURATION_SECONDS);
+    }
+
+    /**
+     * Tells who the long-term keys of this credential, or the default credentials provider chain, belong to.
+     */
+    /*package*/ GetCallerIdentityResponse getCallerIdentity() {
+        return getBaseStsClient().getCallerIdentity();
+    }
+
+    /**
+     * Returns the shared client authenticating with the long-term keys of this credential.
+     */
+    private StsClient getBaseStsClient() {
+        // Handle the case of delegation to instance profile
+        if (StringUtils.isBlank(accessKey) && StringUtils.isBlank(secretKey.getPlainText())) {
+            return StsClientRegistry.get()
+                    .getClient(
+                            null,
+                            null,
+                            StsClientRegistry.DEFAULT_CHAIN_IDENTITY,
+                            SharedDefaultCredentialsProvider.get());
+        }
+        return StsClientRegistry.get()
+                .getClient(
+                        getId(),
+                        fingerprint(),
+                        fingerprint(accessKey, secretKey.getPlainText()),
+                        this::longTermKeys);
+    }
+
+    /**
+     * The long-term keys of this credential, with their account once known so that STS calls are paced by it.
+     */
+    private AwsBasicCredentials longTermKeys() {
+        String secret = secretKey.getPlainText();
+        return AwsBasicCredentials.builder()
+                .accessKeyId(accessKey)
+                .secretAccessKey(secret)
+                .accountId(StsRateLimiter.account(
+                        fingerprint(accessKey, secret),
+                        () -> getBaseStsClient().getCallerIdentity().account()))
+                .build();
+    }
+
+    /**
+     * Identifies this credential and its configuration, without disclosing its long-term keys.
+     */
+    /*package*/ String fingerprint() {
+        return fingerprint(
+                getId(),
+                accessKey,
+                secretKey.getPlainText(),
+                iamRoleArn,
+                iamExternalId,
+                iamMfaSerialNumber,
+                String.valueOf(getStsTokenDuration()));
+    }
+
+    /*package*/ static String fingerprint(String... parts) {
+        return Util.getDigestOf(String.join(":", parts));
+    }
+
+    /*package*/ static Region determineClientRegion() {
+        return ClientRegion.get();
     }
 
     @Override
     public AwsCredentials resolveCredentials(String mfaToken) {
-        AwsCredentials initialCredentials = AwsBasicCredentials.create(accessKey, secretKey.getPlainText());
-
         AssumeRoleRequest.Builder assumeRequest = createAssumeRoleRequest(iamRoleArn, iamExternalId)
                 .serialNumber(iamMfaSerialNumber)
                 .tokenCode(mfaToken)
                 .durationSeconds(this.getStsTokenDuration());
 
-        StsClient stsClient = getStsClient(initialCredentials);
-        AssumeRoleResponse assumeResult = stsClient.assumeRole(assumeRequest.build());
+        long start = CredentialsMetrics.RESOLVE_MFA.start();
+        try {
+            if (reuseMfaSession && !StringUtils.isBlank(iamMfaSerialNumber) && !StringUtils.isBlank(iamRoleArn)) {
+                SessionCredentialsCache.Key key = new SessionCredentialsCache.Key(
+                        mfaSessionKey(), getId(), iamRoleArn, iamExternalId, "Jenkins", this.getStsTokenDuration());
+                // the code is only good once: refreshes reuse the MFA session, or fail once it expired
+                AtomicReference<String> code = new AtomicReference<>(mfaToken);
+                return SessionCredentialsCache.get()
+                        .getSession(key, fingerprint(), () -> assumeRoleWithMfaSession(code.getAndSet(null)));
+            }
+            return toSessionCredentials(getBaseStsClient().assumeRole(assumeRequest.build()));
+        } finally {
+            CredentialsMetrics.RESOLVE_MFA.stop(start);
+        }
+    }
+
+    /*package*/ static AwsSessionCredentials toSessionCredentials(AssumeRoleResponse assumeResult) {
+        return AwsSessionCredentials.builder()
+                .accessKeyId(assumeResult.credentials().accessKeyId())
+                .secretAccessKey(assumeResult.credentials().secretAccessKey())
+                .sessionToken(assumeResult.credentials().sessionToken())
+                .expirationTime(assumeResult.credentials().expiration())
+                .accountId(account(assumeResult.assumedRoleUser()))
+                .build();
+    }
 
-        return AwsSessionCredentials.create(
-                assumeResult.credentials().accessKeyId(),
-                assumeResult.credentials().secretAccessKey(),
-                assumeResult.credentials().sessionToken());
+    /**
+     * Account of the assumed role, so that the calls made with the session are paced by {@link StsRateLimiter} for
+     * that account.
+     */
+    @CheckForNull
+    private static String account(@CheckForNull AssumedRoleUser user) {
+        // arn:partition:sts::account:assumed-role/name/session
+        String[] parts = user != null && user.arn() != null ? user.arn().split(":", 6) : new String[0];
+        return parts.length == 6 && !parts[4].isEmpty() ? parts[4] : null;
     }
 
     /**
@@ -237,7 +396,7 @@ public class AWSCredentialsImpl extends BaseAmazonWebServicesCredentials {
     @Override
     public AWSCredentials getCredentials() {
         AwsCredentials credentials = resolveCredentials();
-        return credentials != null ? fromAwsCredentials(credentials) : null;
+        return credentials != null ? LegacyCredentials.of(credentials) : null;
     }
 
     /**
@@ -246,30 +405,7 @@ public class AWSCredentialsImpl extends BaseAmazonWebServicesCredentials {
     @Deprecated
     @Override
     public AWSCredentials getCredentials(String mfaToken) {
-        return fromAwsCredentials(resolveCredentials(mfaToken));
-    }
-
-    private static AWSCredentials fromAwsCredentials(AwsCredentials awsCredentials) {
-        Objects.requireNonNull(awsCredentials);
-        if (awsCredentials instanceof AwsSessionCredentials) {
-            AwsSessionCredentials awsSessionCredentials = (AwsSessionCredentials) awsCredentials;
-            return fromAwsSessionCredentials(awsSessionCredentials);
-        }
-        return new BasicAWSCredentials(
-                awsCredentials.accessKeyId(),
-                awsCredentials.secretAccessKey(),
-                awsCredentials.accountId().orElse(null),
-                awsCredentials.providerName().orElse(null));
-    }
-
-    private static AWSSessionCredentials fromAwsSessionCredentials(AwsSessionCredentials awsSessionCredentials) {
-        Objects.requireNonNull(awsSessionCredentials);
-        return new BasicSessionCredentials(
-                awsSessionCredentials.accessKeyId(),
-                awsSessionCredentials.secretAccessKey(),
-                awsSessionCredentials.sessionToken(),
-                awsSessionCredentials.accountId().orElse(null),
-                awsSessionCredentials.providerName().orElse(null));
+        return LegacyCredentials.of(resolveCredentials(mfaToken));
     }
 
     /**
@@ -289,16 +425,46 @@ public class AWSCredentialsImpl extends BaseAmazonWebServicesCredentials {
         return accessKey + ":" + iamRoleArn;
     }
 
-    /*package*/ static StsClient buildStsClient(AwsCredentialsProvider provider) {
-        // Check for available region from the SDK, otherwise specify default
-        Region clientRegion = determineClientRegion();
+    /**
+     * Builds a new {@link StsClient}. Use {@link StsClientRegistry} to get a shared one instead.
+     *
+     * @param identity identifies the base credentials, to pace their calls when their account is not known.
+     */
+    /*package*/ static StsClient buildStsClient(
+            AwsCredentialsProvider provider,
+            @NonNull String identity,
+            Region clientRegion,
+            @CheckForNull URI endpoint,
+            SdkHttpClient httpClient) {
+        AWSCredentialsConfiguration config = AWSCredentialsConfiguration.get();
+        int apiCallTimeoutSeconds = config != null
+                ? config.getStsApiCallTimeoutSeconds()
+                : AWSCredentialsConfiguration.DEFAULT_STS_API_CALL_TIMEOUT_SECONDS;
+        int maxAttempts =
+                config != null ? config.getStsMaxAttempts() : AWSCredentialsConfiguration.DEFAULT_STS_MAX_ATTEMPTS;
+        String breaker = endpoint != null ? clientRegion.id() + "=" + endpoint : clientRegion.id();
+        StsClientBuilder builder = StsClient.builder()
+                .region(clientRegion)
+                .httpClient(httpClient)
+                .overrideConfiguration(c -> {
+                    c.addExecutionInterceptor(StsMetricsInterceptor.INSTANCE)
+                            .addExecutionInterceptor(new StsCircuitBreaker.Interceptor(breaker))
+                            .addExecutionInterceptor(new StsRateLimiter.Interceptor(breaker, identity))
+                            .retryStrategy(b -> b.maxAttempts(maxAttempts));
+                    if (apiCallTimeoutSeconds > 0) {
+                        c.apiCallTimeout(Duration.ofSeconds(apiCallTimeoutSeconds));
+                    }
+                });
 
-        StsClientBuilder builder = StsClient.builder().region(clientRegion).httpClient(getHttpClient());
+        if (endpoint != null) {
+            builder = builder.endpointOverride(endpoint);
+        }
 
         if (provider != null) {
             builder = builder.credentialsProvider(provider);
         }
 
+        CredentialsMetrics.STS_CLIENTS_CREATED.increment();
         return builder.build();
     }
 
@@ -312,46 +478,25 @@ public class AWSCredentialsImpl extends BaseAmazonWebServicesCredentials {
     }
 
     /**
-     * Provides the {@link StsClient} for a given {@link AwsCredentials}
+     * Provides the shared {@link StsClient} for a given {@link AwsCredentials}
      *
+     * @param owner id of the credential the {@link AwsCredentials} come from, if any
      * @param awsCredentials
-     * @return {@link StsClient}
+     * @return {@link StsClient}, which must not be closed
      */
-    private static StsClient getStsClient(AwsCredentials awsCredentials) {
-        SdkHttpClient clientConfiguration = getHttpClient();
-        Region clientRegion = determineClientRegion();
-        return StsClient.builder()
-                .region(clientRegion)
-                .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
-                .httpClient(clientConfiguration)
-                .build();
+    private static StsClient getStsClient(@CheckForNull String owner, AwsCredentials awsCredentials) {
+        String identity = fingerprint(awsCredentials.accessKeyId(), awsCredentials.secretAccessKey());
+        return StsClientRegistry.get()
+                .getClient(owner, identity, identity, StaticCredentialsProvider.create(awsCredentials));
     }
 
     /**
      * Provides the {@link SdkHttpClient}
      *
-     * @return {@link SdkHttpClient}
+     * @return the shared {@link SdkHttpClient}, which must not be closed
      */
     private static SdkHttpClient getHttpClient() {
-        Jenkins instance = Jenkins.getInstanceOrNull();
-
-        ProxyConfiguration proxy = instance != null ? instance.proxy : null;
-        ApacheHttpClient.Builder builder = ApacheHttpClient.builder();
-        if (proxy != null && proxy.name != null && !proxy.name.isEmpty()) {
-            software.amazon.awssdk.http.apache.ProxyConfiguration.Builder proxyConfiguration =
-                    software.amazon.awssdk.http.apache.ProxyConfiguration.builder()
-                            .endpoint(URI.create(String.format("http://%s:%s", proxy.name, proxy.port)));
-            if (proxy.getUserName() != null) {
-                proxyConfiguration.username(proxy.getUserName());
-                proxyConfiguration.password(Secret.toString(proxy.getSecretPassword()));
-            }
-            List<Pattern> patterns = proxy.getNoProxyHostPatterns();
-            if (patterns != null && !patterns.isEmpty()) {
-                patterns.stream().map(Pattern::pattern).forEach(proxyConfiguration::addNonProxyHost);
-            }
-            builder.proxyConfiguration(proxyConfiguration.build());
-        }
-        return builder.build();
+        return SharedHttpClient.get();
     }
 
     @Extension
@@ -373,6 +518,49 @@ public class AWSCredentialsImpl extends BaseAmazonWebServicesCredentials {
                 @QueryParameter("iamMfaToken") final String iamMfaToken,
                 @QueryParameter("stsTokenDuration") final Integer stsTokenDuration,
                 @QueryParameter final String secretKey) {
+            return check(
+                    accessKey,
+                    iamRoleArn,
+                    iamExternalId,
+                    iamMfaSerialNumber,
+                    iamMfaToken,
+                    stsTokenDuration,
+                    secretKey,
+                    false);
+        }
+
+        /**
+         * Cheaper check than {@link #doCheckSecretKey}, needing neither EC2 permissions nor a call to EC2.
+         */
+        @POST
+        public FormValidation doTestCallerIdentity(
+                @QueryParameter("accessKey") final String accessKey,
+                @QueryParameter("iamRoleArn") final String iamRoleArn,
+                @QueryParameter("iamExternalId") final String iamExternalId,
+                @QueryParameter("iamMfaSerialNumber") final String iamMfaSerialNumber,
+                @QueryParameter("iamMfaToken") final String iamMfaToken,
+                @QueryParameter("stsTokenDuration") final Integer stsTokenDuration,
+                @QueryParameter final String secretKey) {
+            return check(
+                    accessKey,
+                    iamRoleArn,
+                    iamExternalId,
+                    iamMfaSerialNumber,
+                    iamMfaToken,
+                    stsTokenDuration,
+                    secretKey,
+                    true);
+        }
+
+        private static FormValidation check(
+                String accessKey,
+                String iamRoleArn,
+                String iamExternalId,
+                String iamMfaSerialNumber,
+                String iamMfaToken,
+                Integer stsTokenDuration,
+                String secretKey,
+                boolean callerIdentityOnly) {
             if (!Jenkins.get().hasPermission(Jenkins.ADMINISTER)) {
                 // for security reasons, do not perform any check if the user is not an admin
                 return FormValidation.ok();
@@ -386,15 +574,51 @@ public class AWSCredentialsImpl extends BaseAmazonWebServicesCredentials {
             if (StringUtils.isBlank(secretKey)) {
                 return FormValidation.error(Messages.AWSCredentialsImpl_SpecifySecretAccessKey());
             }
+            String plainSecretKey = Secret.fromString(secretKey).getPlainText();
+            String digest = fingerprint(
+                    accessKey,
+                    plainSecretKey,
+                    Util.fixNull(iamRoleArn),
+                    Util.fixNull(iamExternalId),
+                    Util.fixNull(iamMfaSerialNumber),
+                    Util.fixNull(iamMfaToken),
+                    String.valueOf(stsTokenDuration),
+                    String.valueOf(callerIdentityOnly));
+            return CredentialsValidator.validate(digest, () -> {
+                long start = CredentialsMetrics.VALIDATE.start();
+                try {
+                    return validate(
+                            accessKey,
+                            plainSecretKey,
+                            iamRoleArn,
+                            iamExternalId,
+                            iamMfaSerialNumber,
+                            iamMfaToken,
+                            stsTokenDuration,
+                            callerIdentityOnly);
+                } finally {
+                    CredentialsMetrics.VALIDATE.stop(start);
+                }
+            });
+        }
 
-            AwsCredentials awsCredentials = AwsBasicCredentials.create(
-                    accessKey, Secret.fromString(secretKey).getPlainText());
+        private static FormValidation validate(
+                String accessKey,
+                String secretKey,
+                String iamRoleArn,
+                String iamExternalId,
+                String iamMfaSerialNumber,
+                String iamMfaToken,
+                Integer stsTokenDuration,
+                boolean callerIdentityOnly) {
+            AwsCredentials awsCredentials = AwsBasicCredentials.create(accessKey, secretKey);
 
             // If iamRoleArn is specified, swap out the credentials.
             if (!StringUtils.isBlank(iamRoleArn)) {
 
-                AssumeRoleRequest.Builder assumeRequest =
-                        createAssumeRoleRequest(iamRoleArn, iamExternalId).durationSeconds(stsTokenDuration);
+                AssumeRoleRequest.Builder assumeRequest = createAssumeRoleRequest(iamRoleArn, iamExternalId)
+                        .durationSeconds(stsTokenDuration)
+                        .overrideConfiguration(o -> o.apiCallTimeout(CredentialsValidator.apiCallTimeout()));
 
                 if (!StringUtils.isBlank(iamMfaSerialNumber)) {
                     if (StringUtils.isBlank(iamMfaToken)) {
@@ -405,13 +629,10 @@ public class AWSCredentialsImpl extends BaseAmazonWebServicesCredentials {
                 }
 
                 try {
-                    StsClient stsClient = getStsClient(awsCredentials);
+                    StsClient stsClient = getStsClient(null, awsCredentials);
                     AssumeRoleResponse assumeResult = stsClient.assumeRole(assumeRequest.build());
 
-                    awsCredentials = AwsSessionCredentials.create(
-                            assumeResult.credentials().accessKeyId(),
-                            assumeResult.credentials().secretAccessKey(),
-                            assumeResult.credentials().sessionToken());
+                    awsCredentials = toSessionCredentials(assumeResult);
                 } catch (RuntimeException e) {
                     LOGGER.log(
                             Level.WARNING,
@@ -422,16 +643,30 @@ public class AWSCredentialsImpl extends BaseAmazonWebServicesCredentials {
                 }
             }
 
+            if (callerIdentityOnly) {
+                try {
+                    GetCallerIdentityResponse identity = getStsClient(null, awsCredentials)
+                            .getCallerIdentity(GetCallerIdentityRequest.builder()
+                                    .overrideConfiguration(o -> o.apiCallTimeout(CredentialsValidator.apiCallTimeout()))
+                                    .build());
+                    return FormValidation.ok(Messages.AWSCredentialsImpl_CredentialsValidForIdentity(
+                            identity.account(), identity.arn()));
+                } catch (AwsServiceException e) {
+                    return FormValidation.warning(Messages.AWSCredentialsImpl_CredentialsInValid(e.getMessage()));
+                } catch (SdkException e) {
+                    return FormValidation.error(e.getMessage());
+                }
+            }
+
             Region region = determineClientRegion();
 
-            Ec2Client ec2 = Ec2Client.builder()
+            try (Ec2Client ec2 = Ec2Client.builder()
                     .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
                     .httpClient(getHttpClient())
                     .region(region)
-                    .build();
-
-            try {
-                DescribeAvailabilityZonesResponse zonesResult = ec2.describeAvailabilityZones();
+                    .build()) {
+                DescribeAvailabilityZonesResponse zonesResult = ec2.describeAvailabilityZones(
+                        r -> r.overrideConfiguration(o -> o.apiCallTimeout(CredentialsValidator.apiCallTimeout())));
                 return FormValidation.ok(Messages.AWSCredentialsImpl_CredentialsValidWithAccessToNZones(
                         zonesResult.availabilityZones().size()));
             } catch (AwsServiceException e) {
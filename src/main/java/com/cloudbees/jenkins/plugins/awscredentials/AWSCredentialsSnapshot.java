@@ -0,0 +1,304 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2026, CloudBees, Inc.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import com.cloudbees.plugins.credentials.CredentialsDescriptor;
+import com.cloudbees.plugins.credentials.CredentialsSnapshotTaker;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.remoting.Channel;
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import jenkins.security.CallableWhitelist;
+import jenkins.security.SlaveToMasterCallable;
+import org.jenkinsci.remoting.Role;
+import org.jenkinsci.remoting.RoleSensitive;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import software.amazon.awssdk.auth.credentials.AwsCredentials;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkException;
+
+/**
+ * Snapshot of an {@link AWSCredentialsImpl} with an IAM role, as sent to agents: rather than the long-term keys, it
+ * carries a role session resolved on the controller through the {@link SessionCredentialsCache}, so that agents do
+ * not all assume the same role on their own.
+ *
+ * Once the session gets within the {@link AWSCredentialsConfiguration#getSessionExpiryMarginSeconds() expiry margin},
+ * the snapshot asks the controller for the current session, proving it was handed out by the controller with a random
+ * nonce. All the snapshots of a given version of a credential share their nonce, so that the controller remembers one
+ * nonce per credential rather than per build, for the {@link #MAX_RENEWALS} most recently used credentials. Nonces of
+ * credentials that are updated or removed are forgotten.
+ */
+final class AWSCredentialsSnapshot extends AWSCredentialsImpl {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOGGER = Logger.getLogger(AWSCredentialsSnapshot.class.getName());
+
+    static final int MAX_RENEWALS = 10000;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * Credentials of the snapshots handed out, by nonce. Guarded by itself, in access order.
+     */
+    private static final LinkedHashMap<String, AWSCredentialsImpl> RENEWALS = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Nonces of the {@link #RENEWALS}, by {@link AWSCredentialsImpl#fingerprint() fingerprint} of their credentials.
+     * Guarded by {@link #RENEWALS}.
+     */
+    private static final Map<String, String> NONCES = new HashMap<>();
+
+    private final String nonce;
+
+    private final int marginSeconds;
+
+    private volatile CredentialsEndpoint.Snapshot session;
+
+    /**
+     * The channel to the controller, once deserialized on an agent.
+     */
+    @CheckForNull
+    private transient Channel channel;
+
+    private AWSCredentialsSnapshot(
+            @NonNull AWSCredentialsImpl credentials,
+            @NonNull String nonce,
+            @NonNull AwsSessionCredentials session,
+            int marginSeconds) {
+        super(
+                credentials.getScope(),
+                credentials.getId(),
+                null,
+                null,
+                credentials.getDescription(),
+                credentials.getIamRoleArn(),
+                null,
+                credentials.getIamExternalId());
+        setStsTokenDuration(credentials.getStsTokenDuration());
+        this.nonce = nonce;
+        this.session = CredentialsEndpoint.Snapshot.of(session);
+        this.marginSeconds = marginSeconds;
+    }
+
+    @Override
+    public AwsCredentials resolveCredentials() {
+        CredentialsEndpoint.Snapshot current = session;
+        Instant expiration = current.getExpiration();
+        if (expiration != null && Instant.now().plusSeconds(marginSeconds).isBefore(expiration)) {
+            return current.toCredentials();
+        }
+        try {
+            current = channel != null ? channel.call(new Renew(nonce)) : renew(nonce);
+        } catch (IOException e) {
+            throw SdkClientException.create("Could not renew the AWS credentials " + getId(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw SdkClientException.create("Interrupted while renewing the AWS credentials " + getId(), e);
+        }
+        session = current;
+        return current.toCredentials();
+    }
+
+    @Override
+    public AwsCredentials resolveCredentials(String mfaToken) {
+        return resolveCredentials();
+    }
+
+    /**
+     * Sessions of snapshots are not cached on their own, roles assumed from them are keyed as for long-term keys.
+     */
+    @CheckForNull
+    @Override
+    SessionCredentialsCache.Key sessionKey() {
+        return null;
+    }
+
+    @Override
+    public CredentialsDescriptor getDescriptor() {
+        return (CredentialsDescriptor) Jenkins.get().getDescriptorOrDie(AWSCredentialsImpl.class);
+    }
+
+    private Object readResolve() {
+        channel = Channel.current();
+        return this;
+    }
+
+    /**
+     * Returns the current session of the credentials of a snapshot, on the controller.
+     */
+    @NonNull
+    static CredentialsEndpoint.Snapshot renew(@NonNull String nonce) {
+        AWSCredentialsImpl credentials;
+        synchronized (RENEWALS) {
+            credentials = RENEWALS.get(nonce);
+        }
+        if (credentials == null) {
+            throw SdkClientException.create("The AWS credentials snapshot is no longer valid, the credentials were "
+                    + "updated or removed since it was taken");
+        }
+        CredentialsMetrics.SNAPSHOT_RENEWALS.increment();
+        return CredentialsEndpoint.Snapshot.of(credentials.resolveCredentials());
+    }
+
+    /**
+     * Forgets the snapshots of credentials that were removed from their store, or whose configuration changed.
+     *
+     * @see SessionCredentialsCache#evict(Set)
+     */
+    static void evict(@NonNull Set<String> fingerprints) {
+        synchronized (RENEWALS) {
+            for (String fingerprint : fingerprints) {
+                String nonce = NONCES.remove(fingerprint);
+                if (nonce != null) {
+                    RENEWALS.remove(nonce);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the nonce of the snapshots of the credentials, creating it if needed.
+     */
+    @NonNull
+    private static String nonce(@NonNull AWSCredentialsImpl credentials) {
+        String fingerprint = credentials.fingerprint();
+        synchronized (RENEWALS) {
+            String nonce = NONCES.get(fingerprint);
+            if (nonce == null) {
+                byte[] random = new byte[32];
+                RANDOM.nextBytes(random);
+                nonce = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+                NONCES.put(fingerprint, nonce);
+            }
+            RENEWALS.put(nonce, credentials);
+            Iterator<AWSCredentialsImpl> it = RENEWALS.values().iterator();
+            while (RENEWALS.size() > MAX_RENEWALS && it.hasNext()) {
+                NONCES.remove(it.next().fingerprint());
+                it.remove();
+            }
+            return nonce;
+        }
+    }
+
+    static int size() {
+        synchronized (RENEWALS) {
+            return RENEWALS.size();
+        }
+    }
+
+    static void clear() {
+        synchronized (RENEWALS) {
+            RENEWALS.clear();
+            NONCES.clear();
+        }
+    }
+
+    /**
+     * Sends role sessions instead of long-term keys along with the {@link AWSCredentialsImpl} that have a role.
+     * Credentials without a role have nothing to resolve, and those needing an MFA code cannot be resolved ahead.
+     */
+    @Extension
+    public static class SnapshotTaker extends CredentialsSnapshotTaker<AWSCredentialsImpl> {
+
+        @Override
+        public Class<AWSCredentialsImpl> type() {
+            return AWSCredentialsImpl.class;
+        }
+
+        @Override
+        public AWSCredentialsImpl snapshot(AWSCredentialsImpl credentials) {
+            if (credentials instanceof AWSCredentialsSnapshot
+                    || credentials.sessionKey() == null
+                    || credentials.requiresToken()) {
+                return credentials;
+            }
+            AwsCredentials session;
+            try {
+                session = credentials.resolveCredentials();
+            } catch (SdkException e) {
+                // the agent will try on its own, as before, and report errors of STS to the build
+                LOGGER.log(Level.FINE, "Could not resolve " + credentials.getId() + " for its snapshot", e);
+                return credentials;
+            }
+            if (!(session instanceof AwsSessionCredentials)) {
+                return credentials;
+            }
+            String nonce = nonce(credentials);
+            AWSCredentialsConfiguration config = AWSCredentialsConfiguration.get();
+            int marginSeconds = config != null
+                    ? config.getSessionExpiryMarginSeconds()
+                    : AWSCredentialsConfiguration.DEFAULT_SESSION_EXPIRY_MARGIN_SECONDS;
+            return new AWSCredentialsSnapshot(credentials, nonce, (AwsSessionCredentials) session, marginSeconds);
+        }
+    }
+
+    /**
+     * Asks the controller for the current session of a snapshot.
+     */
+    private static final class Renew extends SlaveToMasterCallable<CredentialsEndpoint.Snapshot, RuntimeException> {
+        private static final long serialVersionUID = 1L;
+
+        private final String nonce;
+
+        Renew(String nonce) {
+            this.nonce = nonce;
+        }
+
+        @Override
+        public CredentialsEndpoint.Snapshot call() {
+            return renew(nonce);
+        }
+    }
+
+    /**
+     * Lets agents send {@link Renew}, which Jenkins rejects otherwise as it comes from an agent. The nonce it carries
+     * proves that the snapshot was handed out by the controller.
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static class RenewAllowlist extends CallableWhitelist {
+        @Override
+        public boolean isWhitelisted(RoleSensitive subject, Collection<Role> expected, Object context) {
+            return subject instanceof Renew;
+        }
+    }
+}
@@ -25,13 +25,20 @@
 
 package com.cloudbees.jenkins.plugins.awscredentials;
 
+import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
+import hudson.AbortException;
 import hudson.FilePath;
 import hudson.Launcher;
+import hudson.model.ItemGroup;
 import hudson.model.Run;
 import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -48,7 +55,6 @@ import software.amazon.awssdk.auth.credentials.AwsCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
 import software.amazon.awssdk.services.sts.StsClient;
-import software.amazon.awssdk.services.sts.auth.StsAssumeRoleCredentialsProvider;
 import software.amazon.awssdk.services.sts.model.AssumeRoleRequest;
 
 /**
@@ -60,6 +66,11 @@ public class AmazonWebServicesCredentialsBinding extends MultiBinding<AmazonWebS
     private static final String DEFAULT_SECRET_ACCESS_KEY_VARIABLE_NAME = "AWS_SECRET_ACCESS_KEY";
     private static final String SESSION_TOKEN_VARIABLE_NAME = "AWS_SESSION_TOKEN";
 
+    /**
+     * Longest session STS grants when assuming a role with the credentials of another role.
+     */
+    private static final int MAX_CHAINED_SESSION_DURATION_SECONDS = 3600;
+
     @NonNull
     private final String accessKeyVariable;
 
@@ -69,6 +80,7 @@ public class AmazonWebServicesCredentialsBinding extends MultiBinding<AmazonWebS
     private String roleArn;
     private String roleSessionName;
     private int roleSessionDurationSeconds;
+    private boolean credentialsEndpoint;
 
     /**
      *
@@ -108,6 +120,20 @@ public class AmazonWebServicesCredentialsBinding extends MultiBinding<AmazonWebS
         return roleSessionDurationSeconds;
     }
 
+    /**
+     * Whether the credentials are served by an endpoint on the agent rather than set in the environment.
+     *
+     * @see CredentialsEndpoint
+     */
+    public boolean isCredentialsEndpoint() {
+        return credentialsEndpoint;
+    }
+
+    @DataBoundSetter
+    public void setCredentialsEndpoint(boolean credentialsEndpoint) {
+        this.credentialsEndpoint = credentialsEndpoint;
+    }
+
     @DataBoundSetter
     public void setRoleArn(String roleArn) {
         this.roleArn = roleArn;
@@ -131,49 +157,267 @@ public class AmazonWebServicesCredentialsBinding extends MultiBinding<AmazonWebS
     @Override
     public MultiEnvironment bind(@NonNull Run<?, ?> build, FilePath workspace, Launcher launcher, TaskListener listener)
             throws IOException, InterruptedException {
-        AwsCredentialsProvider provider = getCredentials(build);
-        if (!StringUtils.isEmpty(this.roleArn)) {
-            provider = this.assumeRoleProvider(provider);
+        long start = CredentialsMetrics.BIND.start();
+        try {
+            return bind(build, launcher, listener);
+        } finally {
+            CredentialsMetrics.BIND.stop(start);
+        }
+    }
+
+    private MultiEnvironment bind(
+            @NonNull Run<?, ?> build, @CheckForNull Launcher launcher, @NonNull TaskListener listener)
+            throws IOException, InterruptedException {
+        AmazonWebServicesCredentials credentials = getCredentials(build);
+        int durationSeconds = chainedSessionDurationSeconds(credentials, roleSessionDurationSeconds);
+        if (!StringUtils.isEmpty(roleArn) && durationSeconds != roleSessionDurationSeconds) {
+            listener.getLogger()
+                    .println(Messages.AmazonWebServicesCredentialsBinding_ChainedSessionDurationShortened(
+                            String.valueOf(roleSessionDurationSeconds), String.valueOf(durationSeconds)));
+        }
+
+        if (credentialsEndpoint) {
+            VirtualChannel channel = launcher != null ? launcher.getChannel() : null;
+            if (channel == null) {
+                throw new AbortException(Messages.AmazonWebServicesCredentialsBinding_EndpointRequiresNode());
+            }
+            AwsSessionCredentials current = toServe(credentials);
+            CredentialsPrefetcher.record(build.getParent(), prefetchKey(), this::prefetch);
+            CredentialsEndpoint endpoint = CredentialsEndpoint.start(channel, current, () -> renew(build));
+            Map<String, String> secretValues = new HashMap<>();
+            secretValues.put(CredentialsEndpoint.AUTHORIZATION_TOKEN_VARIABLE, endpoint.getToken());
+            Map<String, String> publicValues = new HashMap<>();
+            publicValues.put(CredentialsEndpoint.FULL_URI_VARIABLE, endpoint.getUri());
+            EndpointUnbinder unbinder = new EndpointUnbinder(endpoint.getId(), endpoint.getNode(), build, this);
+            return new MultiEnvironment(secretValues, publicValues, unbinder);
         }
 
-        AwsCredentials credentials = provider.resolveCredentials();
+        AwsCredentials resolved = resolve(credentials);
+        CredentialsPrefetcher.record(build.getParent(), prefetchKey(), this::prefetch);
 
         Map<String, String> m = new HashMap<String, String>();
-        if (credentials != null) {
-            m.put(accessKeyVariable, credentials.accessKeyId());
-            m.put(secretKeyVariable, credentials.secretAccessKey());
+        if (resolved != null) {
+            m.put(accessKeyVariable, resolved.accessKeyId());
+            m.put(secretKeyVariable, resolved.secretAccessKey());
         }
 
         // If role has been assumed, STS requires AWS_SESSION_TOKEN variable set too.
-        if (credentials instanceof AwsSessionCredentials) {
-            m.put(SESSION_TOKEN_VARIABLE_NAME, ((AwsSessionCredentials) credentials).sessionToken());
+        if (resolved instanceof AwsSessionCredentials) {
+            m.put(SESSION_TOKEN_VARIABLE_NAME, ((AwsSessionCredentials) resolved).sessionToken());
         }
         return new MultiEnvironment(m);
     }
 
-    private AwsCredentialsProvider assumeRoleProvider(AwsCredentialsProvider baseProvider) {
-        StsClient stsClient = AWSCredentialsImpl.buildStsClient(baseProvider);
+    /**
+     * Resolves the session to serve from the endpoint, as the container credentials providers of the AWS SDKs and CLI
+     * require a session token and expiration: long-term keys are traded for a session. Credentials without keys nor
+     * role stand for the default provider chain of the controller, which is not handed over to builds.
+     */
+    @NonNull
+    AwsSessionCredentials toServe(@NonNull AmazonWebServicesCredentials credentials) throws AbortException {
+        AwsCredentials resolved = StringUtils.isEmpty(roleArn) && credentials instanceof AWSCredentialsImpl
+                ? ((AWSCredentialsImpl) credentials).resolveSessionCredentials()
+                : resolve(credentials);
+        if (resolved == null) {
+            throw new AbortException(
+                    Messages.AmazonWebServicesCredentialsBinding_EndpointRequiresKeys(getCredentialsId()));
+        }
+        if (!(resolved instanceof AwsSessionCredentials)) {
+            throw new AbortException(
+                    Messages.AmazonWebServicesCredentialsBinding_EndpointRequiresSession(getCredentialsId()));
+        }
+        return (AwsSessionCredentials) resolved;
+    }
+
+    /**
+     * Renews the session served to a build, {@code null} once the build is over.
+     */
+    @CheckForNull
+    private AwsCredentials renew(@NonNull Run<?, ?> build) {
+        if (!build.isBuilding()) {
+            return null;
+        }
+        try {
+            return toServe(getCredentials(build));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private AwsCredentials resolve(@NonNull AmazonWebServicesCredentials credentials) {
+        AwsCredentialsProvider provider = credentials;
+        if (!StringUtils.isEmpty(this.roleArn)) {
+            provider = assumeRoleProvider(credentials, roleArn, roleSessionName, roleSessionDurationSeconds);
+        }
+        return provider.resolveCredentials();
+    }
 
-        String roleSessionName = StringUtils.defaultIfBlank(this.roleSessionName, "Jenkins");
+    /**
+     * Identifies what this binding resolves.
+     */
+    private String prefetchKey() {
+        return getCredentialsId() + "|" + StringUtils.defaultString(roleArn) + "|"
+                + StringUtils.defaultString(roleSessionName) + "|" + roleSessionDurationSeconds;
+    }
+
+    private void prefetch(@NonNull ItemGroup<?> context) {
+        AmazonWebServicesCredentials credentials = AWSCredentialsHelper.getCredentials(getCredentialsId(), context);
+        if (credentials != null) {
+            resolve(credentials);
+        }
+    }
+
+    /**
+     * Provides the sessions of a role assumed with some credentials, through the {@link SessionCredentialsCache}.
+     *
+     * @param roleSessionName the name of the sessions, {@code Jenkins} if blank.
+     * @param roleSessionDurationSeconds the duration of the sessions, {@code 0} for the default of the role.
+     */
+    static AwsCredentialsProvider assumeRoleProvider(
+            @NonNull AmazonWebServicesCredentials baseCredentials,
+            @NonNull String roleArn,
+            @CheckForNull String roleSessionName,
+            int roleSessionDurationSeconds) {
+        String sessionName = StringUtils.defaultIfBlank(roleSessionName, "Jenkins");
+
+        // when the credential has a role too, this is the second hop of a role chain
+        SessionCredentialsCache.Key source = baseCredentials instanceof AWSCredentialsImpl
+                ? ((AWSCredentialsImpl) baseCredentials).sessionKey()
+                : null;
+        int durationSeconds = chainedSessionDurationSeconds(baseCredentials, roleSessionDurationSeconds);
 
         AssumeRoleRequest.Builder assumeRoleRequest =
-                AssumeRoleRequest.builder().roleArn(this.roleArn).roleSessionName(roleSessionName);
+                AssumeRoleRequest.builder().roleArn(roleArn).roleSessionName(sessionName);
+
+        if (durationSeconds > 0) {
+            assumeRoleRequest.durationSeconds(durationSeconds);
+        }
+
+        // each hop is cached on its own, and shared with the other bindings of the same role
+        SessionCredentialsCache.Key key = new SessionCredentialsCache.Key(
+                source, baseCredentials.getId(), roleArn, null, sessionName, durationSeconds);
+        AssumeRoleRequest request = assumeRoleRequest.build();
+        // the client is looked up on each call: the registry may have closed an idle one before a refresh
+        return () -> {
+            // the client resolves the base credentials itself, so it must be bound to this very version of them
+            String fingerprint = fingerprint(baseCredentials);
+            String identity = "credentials:" + baseCredentials.getId() + ":" + fingerprint;
+            return SessionCredentialsCache.get().getSession(key, fingerprint, () -> {
+                StsClient stsClient = StsClientRegistry.get()
+                        .getClient(baseCredentials.getId(), fingerprint, identity, baseCredentials);
+                return AWSCredentialsImpl.toSessionCredentials(stsClient.assumeRole(request));
+            });
+        };
+    }
 
-        if (this.roleSessionDurationSeconds > 0) {
-            assumeRoleRequest.durationSeconds(this.roleSessionDurationSeconds);
+    /**
+     * Identifies the version of the base credentials the STS clients sign with. Other types do not tell what they are
+     * configured with, and may be new objects on each lookup, so they are identified by the keys they resolve to.
+     */
+    private static String fingerprint(@NonNull AmazonWebServicesCredentials baseCredentials) {
+        if (baseCredentials instanceof AWSCredentialsImpl) {
+            return ((AWSCredentialsImpl) baseCredentials).fingerprint();
         }
+        AwsCredentials keys = baseCredentials.resolveCredentials();
+        return AWSCredentialsImpl.fingerprint(
+                baseCredentials.getClass().getName(),
+                baseCredentials.getId(),
+                keys.accessKeyId(),
+                keys.secretAccessKey());
+    }
 
-        return StsAssumeRoleCredentialsProvider.builder()
-                .stsClient(stsClient)
-                .refreshRequest(assumeRoleRequest.build())
-                .build();
+    /**
+     * The duration of the sessions of a role assumed with some credentials, shortened when the credentials have a role
+     * too, as STS rejects longer sessions for the second hop of a role chain.
+     */
+    private static int chainedSessionDurationSeconds(
+            @NonNull AmazonWebServicesCredentials baseCredentials, int roleSessionDurationSeconds) {
+        if (baseCredentials instanceof AWSCredentialsImpl
+                && ((AWSCredentialsImpl) baseCredentials).sessionKey() != null
+                && roleSessionDurationSeconds > MAX_CHAINED_SESSION_DURATION_SECONDS) {
+            return MAX_CHAINED_SESSION_DURATION_SECONDS;
+        }
+        return roleSessionDurationSeconds;
     }
 
     @Override
     public Set<String> variables() {
+        if (credentialsEndpoint) {
+            return new HashSet<String>(Arrays.asList(
+                    CredentialsEndpoint.FULL_URI_VARIABLE, CredentialsEndpoint.AUTHORIZATION_TOKEN_VARIABLE));
+        }
         return new HashSet<String>(Arrays.asList(accessKeyVariable, secretKeyVariable, SESSION_TOKEN_VARIABLE_NAME));
     }
 
+    /**
+     * Stops the credentials endpoint at the end of the block. Kept with the build, it resumes the renewals of the
+     * endpoint when the build resumes after a restart of the controller.
+     */
+    private static final class EndpointUnbinder implements Unbinder {
+        private static final long serialVersionUID = 1L;
+
+        private final String id;
+
+        @CheckForNull
+        private final String node;
+
+        private final String build;
+
+        private final String credentialsId;
+
+        private final String roleArn;
+
+        private final String roleSessionName;
+
+        private final int roleSessionDurationSeconds;
+
+        EndpointUnbinder(
+                String id,
+                @CheckForNull String node,
+                @NonNull Run<?, ?> build,
+                @NonNull AmazonWebServicesCredentialsBinding binding) {
+            this.id = id;
+            this.node = node;
+            this.build = build.getExternalizableId();
+            this.credentialsId = binding.getCredentialsId();
+            this.roleArn = binding.roleArn;
+            this.roleSessionName = binding.roleSessionName;
+            this.roleSessionDurationSeconds = binding.roleSessionDurationSeconds;
+        }
+
+        private Object readResolve() {
+            if (node != null) {
+                CredentialsEndpoint.resume(id, node, this::renew);
+            }
+            return this;
+        }
+
+        @CheckForNull
+        private AwsCredentials renew() {
+            AmazonWebServicesCredentialsBinding binding =
+                    new AmazonWebServicesCredentialsBinding(null, null, credentialsId);
+            binding.setRoleArn(roleArn);
+            binding.setRoleSessionName(roleSessionName);
+            binding.setRoleSessionDurationSeconds(roleSessionDurationSeconds);
+            binding.setCredentialsEndpoint(true);
+            Run<?, ?> run;
+            try (ACLContext ignored = ACL.as2(ACL.SYSTEM2)) {
+                run = Run.fromExternalizableId(build);
+            }
+            return run != null ? binding.renew(run) : null;
+        }
+
+        @Override
+        public void unbind(
+                @NonNull Run<?, ?> build,
+                @CheckForNull FilePath workspace,
+                @CheckForNull Launcher launcher,
+                @NonNull TaskListener listener)
+                throws IOException, InterruptedException {
+            CredentialsEndpoint.stop(id, launcher != null ? launcher.getChannel() : null);
+        }
+    }
+
     @Symbol("aws")
     @OptionalExtension(requirePlugins = "credentials-binding")
     public static class DescriptorImpl extends BindingDescriptor<AmazonWebServicesCredentials> {
@@ -0,0 +1,455 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2026, CloudBees, Inc.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.AbortException;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
+import hudson.util.NamingThreadFactory;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import jenkins.util.SystemProperties;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
+import org.jenkinsci.Symbol;
+import org.jenkinsci.plugins.credentialsbinding.BindingDescriptor;
+import org.jenkinsci.plugins.credentialsbinding.MultiBinding;
+import org.jenkinsci.plugins.credentialsbinding.impl.CredentialNotFoundException;
+import org.jenkinsci.plugins.credentialsbinding.impl.UnbindableDir;
+import org.jenkinsci.plugins.variant.OptionalExtension;
+import org.kohsuke.stapler.AncestorInPath;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest2;
+import software.amazon.awssdk.auth.credentials.AwsCredentials;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+import software.amazon.awssdk.core.exception.SdkException;
+
+/**
+ * Binds the credentials of several AWS accounts at once, as the named profiles of a temporary AWS shared credentials
+ * file, so that tools switch between accounts with {@code --profile} rather than nesting a binding per account.
+ *
+ * The profiles are resolved concurrently, on at most {@link #PARALLELISM} threads shared by all the builds, each role
+ * through the {@link SessionCredentialsCache} as with {@link AmazonWebServicesCredentialsBinding}.
+ */
+public class AmazonWebServicesProfilesBinding extends MultiBinding<AmazonWebServicesCredentials> {
+
+    public static final String CREDENTIALS_FILE_VARIABLE = "AWS_SHARED_CREDENTIALS_FILE";
+
+    public static final String CONFIG_FILE_VARIABLE = "AWS_CONFIG_FILE";
+
+    /**
+     * Number of profiles resolved at the same time, over all the builds.
+     */
+    static final int PARALLELISM =
+            SystemProperties.getInteger(AmazonWebServicesProfilesBinding.class.getName() + ".parallelism", 8);
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+            PARALLELISM, new NamingThreadFactory(new DaemonThreadFactory(), "AWS profiles binding"));
+
+    /**
+     * What the AWS CLI and SDKs accept in profile names, without spaces or brackets.
+     */
+    private static final Pattern PROFILE_NAME = Pattern.compile("[A-Za-z0-9_.@+-]+");
+
+    @NonNull
+    private final List<Profile> profiles;
+
+    /**
+     * @param credentialsId the credentials of the profiles that do not have their own.
+     * @param profiles the profiles to bind.
+     */
+    @DataBoundConstructor
+    public AmazonWebServicesProfilesBinding(String credentialsId, @CheckForNull List<Profile> profiles) {
+        super(credentialsId);
+        this.profiles = profiles != null ? new ArrayList<>(profiles) : new ArrayList<>();
+    }
+
+    @NonNull
+    public List<Profile> getProfiles() {
+        return Collections.unmodifiableList(profiles);
+    }
+
+    @Override
+    protected Class<AmazonWebServicesCredentials> type() {
+        return AmazonWebServicesCredentials.class;
+    }
+
+    @Override
+    public MultiEnvironment bind(
+            @NonNull Run<?, ?> build, @CheckForNull FilePath workspace, Launcher launcher, TaskListener listener)
+            throws IOException, InterruptedException {
+        if (workspace == null) {
+            throw new AbortException(Messages.AmazonWebServicesProfilesBinding_RequiresWorkspace());
+        }
+        long start = CredentialsMetrics.BIND.start();
+        try {
+            Map<Profile, AmazonWebServicesCredentials> credentials = credentials(build);
+            Map<Profile, AwsCredentials> resolved = resolve(credentials);
+            CredentialsPrefetcher.record(build.getParent(), prefetchKey(), this::prefetch);
+
+            UnbindableDir dir = UnbindableDir.create(workspace);
+            FilePath credentialsFile = dir.getDirPath().child("credentials");
+            credentialsFile.write(credentialsFile(resolved), StandardCharsets.UTF_8.name());
+            credentialsFile.chmod(0600);
+            FilePath configFile = dir.getDirPath().child("config");
+            configFile.write(configFile(profiles), StandardCharsets.UTF_8.name());
+            configFile.chmod(0600);
+
+            Map<String, String> publicValues = new HashMap<>();
+            publicValues.put(CREDENTIALS_FILE_VARIABLE, credentialsFile.getRemote());
+            publicValues.put(CONFIG_FILE_VARIABLE, configFile.getRemote());
+            return new MultiEnvironment(Collections.emptyMap(), publicValues, dir.getUnbinder());
+        } finally {
+            CredentialsMetrics.BIND.stop(start);
+        }
+    }
+
+    /**
+     * Looks up the credentials of each profile, checking the profiles along the way.
+     */
+    private Map<Profile, AmazonWebServicesCredentials> credentials(@NonNull Run<?, ?> build) throws IOException {
+        if (profiles.isEmpty()) {
+            throw new AbortException(Messages.AmazonWebServicesProfilesBinding_NoProfile());
+        }
+        AmazonWebServicesCredentials defaultCredentials = null;
+        Map<String, AmazonWebServicesCredentials> byId = new HashMap<>();
+        Set<String> names = new HashSet<>();
+        Map<Profile, AmazonWebServicesCredentials> credentials = new LinkedHashMap<>();
+        for (Profile profile : profiles) {
+            if (!PROFILE_NAME.matcher(profile.getName()).matches()) {
+                throw new AbortException(Messages.AmazonWebServicesProfilesBinding_InvalidName(profile.getName()));
+            }
+            if (!names.add(profile.getName())) {
+                throw new AbortException(Messages.AmazonWebServicesProfilesBinding_DuplicateName(profile.getName()));
+            }
+            AmazonWebServicesCredentials c;
+            String id = profile.getCredentialsId();
+            if (StringUtils.isBlank(id)) {
+                if (defaultCredentials == null) {
+                    defaultCredentials = getCredentials(build);
+                }
+                c = defaultCredentials;
+            } else {
+                c = byId.get(id);
+                if (c == null) {
+                    c = CredentialsProvider.findCredentialById(id, AmazonWebServicesCredentials.class, build);
+                    if (c == null) {
+                        throw new CredentialNotFoundException("Could not find credentials entry with ID '" + id + "'");
+                    }
+                    byId.put(id, c);
+                }
+            }
+            credentials.put(profile, c);
+        }
+        return credentials;
+    }
+
+    /**
+     * Resolves the credentials of all the profiles concurrently.
+     */
+    static Map<Profile, AwsCredentials> resolve(@NonNull Map<Profile, AmazonWebServicesCredentials> credentials)
+            throws IOException, InterruptedException {
+        Map<Profile, Future<AwsCredentials>> futures = new LinkedHashMap<>();
+        for (Map.Entry<Profile, AmazonWebServicesCredentials> e : credentials.entrySet()) {
+            futures.put(e.getKey(), EXECUTOR.submit(() -> e.getKey().resolve(e.getValue())));
+        }
+        Map<Profile, AwsCredentials> resolved = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<Profile, Future<AwsCredentials>> e : futures.entrySet()) {
+                try {
+                    resolved.put(e.getKey(), e.getValue().get());
+                } catch (ExecutionException x) {
+                    Throwable cause = x.getCause();
+                    if (cause instanceof SdkException) {
+                        throw new AbortException(Messages.AmazonWebServicesProfilesBinding_ResolutionFailed(
+                                e.getKey().getName(), cause.getMessage()));
+                    }
+                    throw new IOException(
+                            "Could not resolve the credentials of profile "
+                                    + e.getKey().getName(),
+                            cause);
+                }
+            }
+        } finally {
+            // on failure, do not keep calling STS for nothing
+            futures.values().forEach(f -> f.cancel(true));
+        }
+        return resolved;
+    }
+
+    @NonNull
+    static String credentialsFile(@NonNull Map<Profile, AwsCredentials> resolved) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Profile, AwsCredentials> e : resolved.entrySet()) {
+            AwsCredentials credentials = e.getValue();
+            sb.append('[').append(e.getKey().getName()).append("]\n");
+            if (credentials != null) {
+                sb.append("aws_access_key_id = ")
+                        .append(credentials.accessKeyId())
+                        .append('\n');
+                sb.append("aws_secret_access_key = ")
+                        .append(credentials.secretAccessKey())
+                        .append('\n');
+                if (credentials instanceof AwsSessionCredentials) {
+                    sb.append("aws_session_token = ")
+                            .append(((AwsSessionCredentials) credentials).sessionToken())
+                            .append('\n');
+                }
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    @NonNull
+    static String configFile(@NonNull List<Profile> profiles) {
+        StringBuilder sb = new StringBuilder();
+        for (Profile profile : profiles) {
+            if (StringUtils.isNotBlank(profile.getRegion())) {
+                // profiles of the config file are prefixed, except for the default one
+                String name = profile.getName().equals("default") ? "default" : "profile " + profile.getName();
+                sb.append('[').append(name).append("]\n");
+                sb.append("region = ").append(profile.getRegion().trim()).append("\n\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Identifies what this binding resolves.
+     */
+    private String prefetchKey() {
+        StringBuilder sb = new StringBuilder("profiles|").append(getCredentialsId());
+        for (Profile profile : profiles) {
+            sb.append('|').append(profile.prefetchKey());
+        }
+        return sb.toString();
+    }
+
+    private void prefetch(@NonNull ItemGroup<?> context) {
+        for (Profile profile : profiles) {
+            String id = StringUtils.defaultIfBlank(profile.getCredentialsId(), getCredentialsId());
+            AmazonWebServicesCredentials credentials = AWSCredentialsHelper.getCredentials(id, context);
+            if (credentials != null) {
+                profile.resolve(credentials);
+            }
+        }
+    }
+
+    @Override
+    public Set<String> variables() {
+        return new HashSet<String>(Arrays.asList(CREDENTIALS_FILE_VARIABLE, CONFIG_FILE_VARIABLE));
+    }
+
+    /**
+     * A named profile of the credentials file: some credentials, optionally with a role to assume.
+     */
+    public static final class Profile extends AbstractDescribableImpl<Profile> {
+
+        @NonNull
+        private final String name;
+
+        private String credentialsId;
+        private String roleArn;
+        private String roleSessionName;
+        private int roleSessionDurationSeconds;
+        private String region;
+
+        @DataBoundConstructor
+        public Profile(@NonNull String name) {
+            this.name = name.trim();
+        }
+
+        @NonNull
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * The credentials of this profile, those of the binding if blank.
+         */
+        @CheckForNull
+        public String getCredentialsId() {
+            return credentialsId;
+        }
+
+        @DataBoundSetter
+        public void setCredentialsId(String credentialsId) {
+            this.credentialsId = StringUtils.trimToNull(credentialsId);
+        }
+
+        @CheckForNull
+        public String getRoleArn() {
+            return roleArn;
+        }
+
+        @DataBoundSetter
+        public void setRoleArn(String roleArn) {
+            this.roleArn = StringUtils.trimToNull(roleArn);
+        }
+
+        @CheckForNull
+        public String getRoleSessionName() {
+            return roleSessionName;
+        }
+
+        @DataBoundSetter
+        public void setRoleSessionName(String roleSessionName) {
+            this.roleSessionName = StringUtils.trimToNull(roleSessionName);
+        }
+
+        public int getRoleSessionDurationSeconds() {
+            return roleSessionDurationSeconds;
+        }
+
+        @DataBoundSetter
+        public void setRoleSessionDurationSeconds(int roleSessionDurationSeconds) {
+            this.roleSessionDurationSeconds = roleSessionDurationSeconds;
+        }
+
+        /**
+         * The region of the profile, written to the config file, if any.
+         */
+        @CheckForNull
+        public String getRegion() {
+            return region;
+        }
+
+        @DataBoundSetter
+        public void setRegion(String region) {
+            this.region = StringUtils.trimToNull(region);
+        }
+
+        AwsCredentials resolve(@NonNull AmazonWebServicesCredentials credentials) {
+            if (roleArn == null) {
+                return credentials.resolveCredentials();
+            }
+            return AmazonWebServicesCredentialsBinding.assumeRoleProvider(
+                            credentials, roleArn, roleSessionName, roleSessionDurationSeconds)
+                    .resolveCredentials();
+        }
+
+        String prefetchKey() {
+            return name + ":" + StringUtils.defaultString(credentialsId) + ":" + StringUtils.defaultString(roleArn)
+                    + ":" + StringUtils.defaultString(roleSessionName) + ":" + roleSessionDurationSeconds;
+        }
+
+        @OptionalExtension(requirePlugins = "credentials-binding")
+        public static class DescriptorImpl extends Descriptor<Profile> {
+
+            /**
+             * Number of credentials listed at once, the others are found with the filter.
+             */
+            static final int CREDENTIALS_PAGE_SIZE = 100;
+
+            @NonNull
+            @Override
+            public String getDisplayName() {
+                return "AWS profile";
+            }
+
+            public FormValidation doCheckName(@QueryParameter String value) {
+                if (StringUtils.isBlank(value)) {
+                    return FormValidation.error(Messages.AmazonWebServicesProfilesBinding_NameRequired());
+                }
+                if (!PROFILE_NAME.matcher(value.trim()).matches()) {
+                    return FormValidation.error(Messages.AmazonWebServicesProfilesBinding_InvalidName(value));
+                }
+                return FormValidation.ok();
+            }
+
+            /**
+             * Lists the credentials matching the filter of the form. Pages after the first one are requested with the
+             * {@code offset} and {@code limit} query parameters, which are not fields of the form.
+             */
+            public ListBoxModel doFillCredentialsIdItems(
+                    @AncestorInPath Item item,
+                    @QueryParameter String value,
+                    @QueryParameter String credentialsFilter,
+                    @CheckForNull StaplerRequest2 request) {
+                ItemGroup<?> context;
+                if (item instanceof ItemGroup) {
+                    context = (ItemGroup<?>) item;
+                } else {
+                    context = item != null ? item.getParent() : null;
+                }
+                int offset = request != null ? NumberUtils.toInt(request.getParameter("offset"), 0) : 0;
+                int limit = request != null
+                        ? NumberUtils.toInt(request.getParameter("limit"), CREDENTIALS_PAGE_SIZE)
+                        : CREDENTIALS_PAGE_SIZE;
+                return AWSCredentialsHelper.doFillCredentialsIdItems(
+                        context,
+                        value,
+                        credentialsFilter,
+                        Math.max(offset, 0),
+                        Math.min(Math.max(limit, 1), CREDENTIALS_PAGE_SIZE));
+            }
+        }
+    }
+
+    @Symbol("awsProfiles")
+    @OptionalExtension(requirePlugins = "credentials-binding")
+    public static class DescriptorImpl extends BindingDescriptor<AmazonWebServicesCredentials> {
+
+        @Override
+        protected Class<AmazonWebServicesCredentials> type() {
+            return AmazonWebServicesCredentials.class;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "AWS profiles of several accounts";
+        }
+    }
+}
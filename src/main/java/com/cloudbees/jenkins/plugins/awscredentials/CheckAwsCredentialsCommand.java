@@ -0,0 +1,66 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2026, CloudBees, Inc.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import hudson.Extension;
+import hudson.cli.CLICommand;
+import java.util.List;
+import jenkins.model.Jenkins;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Runs the {@link CredentialsHealthCheck} and prints the result of each credential as it completes. Exits with
+ * {@code 1} when any credential failed.
+ */
+@Extension
+@Restricted(NoExternalUse.class)
+public class CheckAwsCredentialsCommand extends CLICommand {
+
+    @Override
+    public String getShortDescription() {
+        return Messages.CheckAwsCredentialsCommand_ShortDescription();
+    }
+
+    @Override
+    protected int run() throws Exception {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        // joins the running check, if any
+        CredentialsHealthCheck.Run run = CredentialsHealthCheck.get().start(0);
+        boolean failed = false;
+        int seen = 0;
+        List<CredentialsHealthCheck.Result> results;
+        while (!(results = run.await(seen)).isEmpty()) {
+            for (CredentialsHealthCheck.Result result : results) {
+                stdout.println(result);
+                failed |= result.getStatus() == CredentialsHealthCheck.Status.FAILED;
+            }
+            seen += results.size();
+        }
+        stdout.println(Messages.CheckAwsCredentialsCommand_Summary(seen));
+        return failed ? 1 : 0;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2026, CloudBees, Inc.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.commons.lang.StringUtils;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.regions.providers.AwsRegionProvider;
+import software.amazon.awssdk.regions.providers.DefaultAwsRegionProviderChain;
+
+/**
+ * Region the AWS clients of this plugin talk to.
+ *
+ * Unless {@link AWSCredentialsConfiguration#getRegion() configured}, the region is looked up once with the
+ * {@link DefaultAwsRegionProviderChain} and remembered for the life of the process: off EC2 the chain waits for the
+ * instance metadata endpoint to time out, which is far too slow to repeat on every client build.
+ */
+final class ClientRegion {
+
+    private static final Logger LOGGER = Logger.getLogger(ClientRegion.class.getName());
+
+    static final Region FALLBACK = Region.US_EAST_1;
+
+    private static volatile Region detected;
+
+    private ClientRegion() {}
+
+    @NonNull
+    static Region get() {
+        AWSCredentialsConfiguration config = AWSCredentialsConfiguration.get();
+        if (config != null && StringUtils.isNotBlank(config.getRegion())) {
+            return Region.of(config.getRegion());
+        }
+        Region region = detected;
+        if (region == null) {
+            synchronized (ClientRegion.class) {
+                region = detected;
+                if (region == null) {
+                    region = detect();
+                    detected = region;
+                }
+            }
+        }
+        return region;
+    }
+
+    /**
+     * Forgets the detected region and looks it up again.
+     */
+    @NonNull
+    static synchronized Region redetect() {
+        Region region = detect();
+        detected = region;
+        return region;
+    }
+
+    private static Region detect() {
+        // Check for available region from the SDK, otherwise specify default
+        AwsRegionProvider sdkRegionLookup = new DefaultAwsRegionProviderChain();
+        long start = CredentialsMetrics.REGION_DETECTION.start();
+        try {
+            Region region = sdkRegionLookup.getRegion();
+            LOGGER.log(Level.FINE, "Detected region {0}", region);
+            return region;
+        } catch (RuntimeException e) {
+            LOGGER.log(
+                    Level.WARNING,
+                    "Could not find default region using SDK lookup, using {0}. "
+                            + "Set the region in the global configuration to silence this message.",
+                    FALLBACK);
+            LOGGER.log(Level.FINE, "Region lookup failure", e);
+            return FALLBACK;
+        } finally {
+            CredentialsMetrics.REGION_DETECTION.stop(start);
+        }
+    }
+}
@@ -0,0 +1,520 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2026, CloudBees, Inc.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.Computer;
+import hudson.remoting.VirtualChannel;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import jenkins.security.MasterToSlaveCallable;
+import jenkins.util.Timer;
+import net.sf.json.JSONObject;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentials;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+
+/**
+ * Local HTTP endpoint serving the credentials of a binding to the processes of a build, in the format expected by the
+ * container credentials provider of the AWS SDKs and CLI ({@value #FULL_URI_VARIABLE}).
+ *
+ * The endpoint runs on the agent, listens on the loopback interface only and requires the random token given in
+ * {@value #AUTHORIZATION_TOKEN_VARIABLE}. The controller renews sessions shortly before they stop being handed out by
+ * the caches and pushes them to the agent, so that builds outliving a session keep working and every AWS process of the
+ * build shares the same session instead of calling STS. Only sessions are served, as the container credentials
+ * providers require their token and expiration. After a restart of the controller, the renewals are
+ * {@link #resume resumed} along with the build.
+ */
+final class CredentialsEndpoint {
+
+    private static final Logger LOGGER = Logger.getLogger(CredentialsEndpoint.class.getName());
+
+    static final String FULL_URI_VARIABLE = "AWS_CONTAINER_CREDENTIALS_FULL_URI";
+
+    static final String AUTHORIZATION_TOKEN_VARIABLE = "AWS_CONTAINER_AUTHORIZATION_TOKEN";
+
+    /**
+     * How long to wait before trying again to renew a session, or before renewing a session that is already due. Not
+     * final for tests.
+     */
+    static long RETRY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * Endpoints the controller pushes renewed sessions to, by id.
+     */
+    private static final ConcurrentMap<String, Refresher> REFRESHERS = new ConcurrentHashMap<>();
+
+    /**
+     * Endpoints running in this JVM, by id. Only used on agents.
+     */
+    private static final ConcurrentMap<String, Server> SERVERS = new ConcurrentHashMap<>();
+
+    private final String id;
+
+    private final String uri;
+
+    private final String token;
+
+    @CheckForNull
+    private final String node;
+
+    private CredentialsEndpoint(String id, String uri, String token, @CheckForNull String node) {
+        this.id = id;
+        this.uri = uri;
+        this.token = token;
+        this.node = node;
+    }
+
+    /**
+     * Starts an endpoint on the agent behind the given channel.
+     *
+     * @param channel the channel to the agent.
+     * @param current the session to serve until it needs to be renewed.
+     * @param credentials renews the session, on the controller.
+     */
+    @NonNull
+    static CredentialsEndpoint start(
+            @NonNull VirtualChannel channel,
+            @NonNull AwsSessionCredentials current,
+            @NonNull Supplier<AwsCredentials> credentials)
+            throws IOException, InterruptedException {
+        String id = UUID.randomUUID().toString();
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+        int port = channel.call(new Start(id, token, Snapshot.of(current)));
+        String node = nodeOf(channel);
+        // the agent may reconnect while the build runs
+        Refresher refresher = new Refresher(id, node != null ? () -> channelOf(node) : () -> channel, credentials);
+        REFRESHERS.put(id, refresher);
+        refresher.schedule(current);
+        return new CredentialsEndpoint(id, "http://127.0.0.1:" + port + "/", token, node);
+    }
+
+    /**
+     * Renews the credentials of an endpoint again once the controller restarted, as only the agent kept it running.
+     *
+     * @param node the name of the node the endpoint runs on.
+     * @param credentials renews the session, on the controller, or returns {@code null} once the build is over.
+     */
+    static void resume(@NonNull String id, @NonNull String node, @NonNull Supplier<AwsCredentials> credentials) {
+        Refresher refresher = new Refresher(id, () -> channelOf(node), credentials);
+        if (REFRESHERS.putIfAbsent(id, refresher) == null) {
+            LOGGER.log(Level.FINE, "Resuming the renewals of endpoint {0} on {1}", new Object[] {id, node});
+            // the session the agent serves is unknown, and may have expired meanwhile
+            refresher.schedule(0L);
+        }
+    }
+
+    @CheckForNull
+    private static String nodeOf(@NonNull VirtualChannel channel) {
+        for (Computer computer : Jenkins.get().getComputers()) {
+            if (computer.getChannel() == channel) {
+                return computer.getName();
+            }
+        }
+        return null;
+    }
+
+    @CheckForNull
+    private static VirtualChannel channelOf(@NonNull String node) {
+        Computer computer = Jenkins.get().getComputer(node);
+        return computer != null ? computer.getChannel() : null;
+    }
+
+    /**
+     * Stops the endpoint with the given id.
+     *
+     * @param channel the channel to the agent, {@code null} if the agent is gone.
+     */
+    static void stop(@NonNull String id, @CheckForNull VirtualChannel channel)
+            throws IOException, InterruptedException {
+        Refresher refresher = REFRESHERS.remove(id);
+        if (refresher != null) {
+            refresher.cancel();
+        }
+        if (channel != null) {
+            channel.call(new Stop(id));
+        }
+    }
+
+    @NonNull
+    String getId() {
+        return id;
+    }
+
+    /**
+     * Value of {@value #FULL_URI_VARIABLE}.
+     */
+    @NonNull
+    String getUri() {
+        return uri;
+    }
+
+    /**
+     * Value of {@value #AUTHORIZATION_TOKEN_VARIABLE}.
+     */
+    @NonNull
+    String getToken() {
+        return token;
+    }
+
+    /**
+     * The name of the node the endpoint runs on, {@code ""} for the built-in node, {@code null} if not known.
+     */
+    @CheckForNull
+    String getNode() {
+        return node;
+    }
+
+    /**
+     * Starts serving credentials in this JVM.
+     *
+     * @return the port of the endpoint.
+     */
+    static int serve(@NonNull String id, @NonNull String token, @NonNull Snapshot snapshot) throws IOException {
+        HttpServer http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        Server server = new Server(http, token, snapshot);
+        http.createContext("/", server::handle);
+        http.start();
+        SERVERS.put(id, server);
+        return http.getAddress().getPort();
+    }
+
+    /**
+     * Replaces the credentials served in this JVM.
+     *
+     * @return whether the endpoint is still running.
+     */
+    static boolean update(@NonNull String id, @NonNull Snapshot snapshot) {
+        Server server = SERVERS.get(id);
+        if (server == null) {
+            return false;
+        }
+        server.snapshot = snapshot;
+        return true;
+    }
+
+    static void unserve(@NonNull String id) {
+        Server server = SERVERS.remove(id);
+        if (server != null) {
+            server.http.stop(0);
+        }
+    }
+
+    /**
+     * Credentials as sent to the agent.
+     */
+    static final class Snapshot implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String accessKeyId;
+        private final String secretAccessKey;
+
+        @CheckForNull
+        private final String sessionToken;
+
+        @CheckForNull
+        private final Instant expiration;
+
+        @CheckForNull
+        private final String accountId;
+
+        Snapshot(
+                String accessKeyId,
+                String secretAccessKey,
+                String sessionToken,
+                Instant expiration,
+                @CheckForNull String accountId) {
+            this.accessKeyId = accessKeyId;
+            this.secretAccessKey = secretAccessKey;
+            this.sessionToken = sessionToken;
+            this.expiration = expiration;
+            this.accountId = accountId;
+        }
+
+        static Snapshot of(@NonNull AwsCredentials credentials) {
+            if (credentials instanceof AwsSessionCredentials) {
+                AwsSessionCredentials session = (AwsSessionCredentials) credentials;
+                return new Snapshot(
+                        session.accessKeyId(),
+                        session.secretAccessKey(),
+                        session.sessionToken(),
+                        session.expirationTime().orElse(null),
+                        session.accountId().orElse(null));
+            }
+            return new Snapshot(
+                    credentials.accessKeyId(),
+                    credentials.secretAccessKey(),
+                    null,
+                    null,
+                    credentials.accountId().orElse(null));
+        }
+
+        @CheckForNull
+        Instant getExpiration() {
+            return expiration;
+        }
+
+        @NonNull
+        AwsCredentials toCredentials() {
+            if (sessionToken == null) {
+                return AwsBasicCredentials.builder()
+                        .accessKeyId(accessKeyId)
+                        .secretAccessKey(secretAccessKey)
+                        .accountId(accountId)
+                        .build();
+            }
+            return AwsSessionCredentials.builder()
+                    .accessKeyId(accessKeyId)
+                    .secretAccessKey(secretAccessKey)
+                    .sessionToken(sessionToken)
+                    .expirationTime(expiration)
+                    .accountId(accountId)
+                    .build();
+        }
+
+        String toJson() {
+            JSONObject json = new JSONObject();
+            json.put("AccessKeyId", accessKeyId);
+            json.put("SecretAccessKey", secretAccessKey);
+            if (sessionToken != null) {
+                json.put("Token", sessionToken);
+            }
+            if (expiration != null) {
+                json.put("Expiration", expiration.toString());
+            }
+            if (accountId != null) {
+                json.put("AccountId", accountId);
+            }
+            return json.toString();
+        }
+    }
+
+    private static final class Server {
+        private final HttpServer http;
+        private final byte[] token;
+        private volatile Snapshot snapshot;
+
+        Server(HttpServer http, String token, Snapshot snapshot) {
+            this.http = http;
+            this.token = token.getBytes(StandardCharsets.UTF_8);
+            this.snapshot = snapshot;
+        }
+
+        void handle(HttpExchange exchange) throws IOException {
+            try {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+                if (authorization == null
+                        || !MessageDigest.isEqual(token, authorization.getBytes(StandardCharsets.UTF_8))) {
+                    exchange.sendResponseHeaders(401, -1);
+                    return;
+                }
+                byte[] body = snapshot.toJson().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(body);
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    /**
+     * Renews the credentials of an endpoint on the controller and pushes them to the agent.
+     */
+    private static final class Refresher {
+        private final String id;
+
+        /**
+         * The channel to the agent, {@code null} while it is not connected.
+         */
+        private final Supplier<VirtualChannel> channel;
+
+        private final Supplier<AwsCredentials> credentials;
+        private volatile Future<?> next;
+
+        Refresher(String id, Supplier<VirtualChannel> channel, Supplier<AwsCredentials> credentials) {
+            this.id = id;
+            this.channel = channel;
+            this.credentials = credentials;
+        }
+
+        void schedule(AwsCredentials current) {
+            Instant expiration = current instanceof AwsSessionCredentials
+                    ? ((AwsSessionCredentials) current).expirationTime().orElse(null)
+                    : null;
+            if (expiration == null) {
+                // nothing to renew
+                return;
+            }
+            AWSCredentialsConfiguration config = AWSCredentialsConfiguration.get();
+            int marginSeconds = config != null
+                    ? config.getSessionExpiryMarginSeconds()
+                    : AWSCredentialsConfiguration.DEFAULT_SESSION_EXPIRY_MARGIN_SECONDS;
+            // just past the point where the caches stop handing the session out
+            long delay = expiration.toEpochMilli()
+                    - TimeUnit.SECONDS.toMillis(marginSeconds)
+                    + TimeUnit.SECONDS.toMillis(1)
+                    - System.currentTimeMillis();
+            schedule(Math.max(delay, RETRY_MILLIS));
+        }
+
+        private void schedule(long delayMillis) {
+            if (REFRESHERS.get(id) == this) {
+                next = Timer.get().schedule(this::submitRefresh, delayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void submitRefresh() {
+            try {
+                StsBackgroundCalls.EXECUTOR.execute(this::refresh);
+            } catch (RejectedExecutionException e) {
+                LOGGER.log(Level.FINE, "Too many STS calls queued, will renew endpoint {0} later", id);
+                schedule(RETRY_MILLIS);
+            }
+        }
+
+        void cancel() {
+            Future<?> n = next;
+            if (n != null) {
+                n.cancel(false);
+            }
+        }
+
+        private void refresh() {
+            AwsCredentials renewed;
+            try {
+                renewed = credentials.get();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Failed to renew the credentials of endpoint " + id + ", will try again", e);
+                schedule(RETRY_MILLIS);
+                return;
+            }
+            if (renewed == null) {
+                LOGGER.log(Level.FINE, "The build of endpoint {0} is over", id);
+                REFRESHERS.remove(id, this);
+                return;
+            }
+            VirtualChannel c = channel.get();
+            if (c == null) {
+                LOGGER.log(Level.FINE, "The agent of endpoint {0} is not connected yet, will try again", id);
+                schedule(RETRY_MILLIS);
+                return;
+            }
+            try {
+                if (!c.call(new Update(id, Snapshot.of(renewed)))) {
+                    LOGGER.log(Level.FINE, "Endpoint {0} is gone from the agent", id);
+                    REFRESHERS.remove(id, this);
+                    return;
+                }
+            } catch (IOException | InterruptedException e) {
+                // e.g. the agent is reconnecting, the build may still be running
+                LOGGER.log(Level.FINE, "Could not reach the agent of endpoint " + id + ", will try again", e);
+                schedule(RETRY_MILLIS);
+                return;
+            }
+            LOGGER.log(Level.FINE, "Renewed the credentials of endpoint {0}", id);
+            schedule(renewed);
+        }
+    }
+
+    private static final class Start extends MasterToSlaveCallable<Integer, IOException> {
+        private static final long serialVersionUID = 1L;
+        private final String id;
+        private final String token;
+        private final Snapshot snapshot;
+
+        Start(String id, String token, Snapshot snapshot) {
+            this.id = id;
+            this.token = token;
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public Integer call() throws IOException {
+            return serve(id, token, snapshot);
+        }
+    }
+
+    private static final class Update extends MasterToSlaveCallable<Boolean, RuntimeException> {
+        private static final long serialVersionUID = 1L;
+        private final String id;
+        private final Snapshot snapshot;
+
+        Update(String id, Snapshot snapshot) {
+            this.id = id;
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public Boolean call() {
+            return update(id, snapshot);
+        }
+    }
+
+    private static final class Stop extends MasterToSlaveCallable<Void, RuntimeException> {
+        private static final long serialVersionUID = 1L;
+        private final String id;
+
+        Stop(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public Void call() {
+            unserve(id);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,498 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2026, CloudBees, Inc.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import com.cloudbees.plugins.credentials.Credentials;
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import com.cloudbees.plugins.credentials.CredentialsStore;
+import com.cloudbees.plugins.credentials.domains.Domain;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.ModelObject;
+import hudson.model.TaskListener;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.sts.model.GetCallerIdentityResponse;
+
+/**
+ * Checks all the {@link AWSCredentialsImpl} of the system and folder credentials stores at once, for
+ * {@link CredentialsHealthLink the administrators}, the {@code check-aws-credentials} CLI command and the
+ * {@link PeriodicCheck periodic check}.
+ *
+ * Each credential is checked by asking STS who its keys belong to and, for roles, by assuming the role again rather
+ * than trusting a cached session, which stays valid after the role was revoked. Checks run on {@link #WORKERS}
+ * threads, through the same {@link StsRateLimiter rate limits} and {@link StsCircuitBreaker circuit breakers} as the
+ * builds, so that a large instance does not get throttled by STS, which would fail its builds as well. The latest
+ * result of each credential is kept, with the time it was checked.
+ */
+@Restricted(NoExternalUse.class)
+public final class CredentialsHealthCheck {
+
+    private static final Logger LOGGER = Logger.getLogger(CredentialsHealthCheck.class.getName());
+
+    private static final CredentialsHealthCheck INSTANCE = new CredentialsHealthCheck();
+
+    /**
+     * Number of credentials checked at the same time. Not final for the script console and tests.
+     */
+    static int WORKERS = SystemProperties.getInteger(CredentialsHealthCheck.class.getName() + ".workers", 4);
+
+    /**
+     * Latest result by {@link Result#getKey() credential}.
+     */
+    private final ConcurrentMap<String, Result> results = new ConcurrentHashMap<>();
+
+    @CheckForNull
+    private volatile Run current;
+
+    private CredentialsHealthCheck() {}
+
+    @NonNull
+    public static CredentialsHealthCheck get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts checking all the credentials, unless a check is already running.
+     *
+     * @param maxAgeMillis credentials checked more recently than this are not checked again, {@code 0} to check them
+     *     all.
+     * @return the running check.
+     */
+    @NonNull
+    public synchronized Run start(long maxAgeMillis) {
+        Run run = current;
+        if (run != null && !run.isDone()) {
+            return run;
+        }
+        List<Target> targets = targets();
+        Set<String> keys = new HashSet<>();
+        for (Target target : targets) {
+            keys.add(target.key);
+        }
+        // forget credentials that were removed
+        results.keySet().retainAll(keys);
+        long now = System.currentTimeMillis();
+        if (maxAgeMillis > 0) {
+            targets.removeIf(t -> {
+                Result previous = results.get(t.key);
+                return previous != null && now - previous.checkedAt < maxAgeMillis;
+            });
+        }
+        run = new Run(now, targets.size());
+        current = run;
+        if (targets.isEmpty()) {
+            run.done();
+            return run;
+        }
+        int workers = Math.max(1, Math.min(WORKERS, targets.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(
+                workers, new NamingThreadFactory(new DaemonThreadFactory(), "AWS credentials health check"));
+        Run started = run;
+        for (Target target : targets) {
+            executor.execute(() -> check(started, target));
+        }
+        executor.shutdown();
+        return run;
+    }
+
+    /**
+     * The running or latest check, if any.
+     */
+    @CheckForNull
+    public Run getCurrent() {
+        return current;
+    }
+
+    /**
+     * The latest result of each credential, failures first.
+     */
+    @NonNull
+    public List<Result> getResults() {
+        List<Result> sorted = new ArrayList<>(results.values());
+        sorted.sort(Comparator.comparing((Result r) -> r.status).thenComparing(Result::getKey));
+        return sorted;
+    }
+
+    void clear() {
+        results.clear();
+        current = null;
+    }
+
+    /**
+     * The {@link AWSCredentialsImpl} of the system store and of the stores of folders.
+     */
+    private static List<Target> targets() {
+        List<Target> targets = new ArrayList<>();
+        try (ACLContext ignored = ACL.as2(ACL.SYSTEM2)) {
+            Jenkins jenkins = Jenkins.get();
+            addTargets(targets, jenkins, "");
+            for (Item item : jenkins.getAllItems(Item.class)) {
+                if (item instanceof ItemGroup) {
+                    addTargets(targets, item, item.getFullName());
+                }
+            }
+        }
+        return targets;
+    }
+
+    private static void addTargets(List<Target> targets, ModelObject context, String location) {
+        for (CredentialsStore store : CredentialsProvider.lookupStores(context)) {
+            if (store.getContext() != context) {
+                // stores of the parents are visible from here as well
+                continue;
+            }
+            for (Domain domain : store.getDomains()) {
+                for (Credentials c : store.getCredentials(domain)) {
+                    if (c instanceof AWSCredentialsImpl) {
+                        targets.add(new Target(location, (AWSCredentialsImpl) c));
+                    }
+                }
+            }
+        }
+    }
+
+    private void check(Run run, Target target) {
+        AWSCredentialsImpl credentials = target.credentials;
+        Result previous = results.get(target.key);
+        String account = previous != null ? previous.account : null;
+        long start = System.currentTimeMillis();
+        Result result = null;
+        try {
+            GetCallerIdentityResponse identity = credentials.getCallerIdentity();
+            String message;
+            Status status = Status.OK;
+            if (StringUtils.isBlank(credentials.getIamRoleArn())) {
+                message = Messages.AWSCredentialsImpl_CredentialsValidForIdentity(identity.account(), identity.arn());
+            } else if (credentials.requiresToken()) {
+                status = Status.UNKNOWN;
+                message = Messages.CredentialsHealthCheck_RoleNeedsMfa(
+                        identity.account(), identity.arn(), credentials.getIamRoleArn());
+            } else {
+                credentials.assumeRole();
+                message = Messages.CredentialsHealthCheck_RoleAssumed(
+                        identity.account(), identity.arn(), credentials.getIamRoleArn());
+            }
+            result = new Result(target, status, message, identity.account(), start);
+        } catch (StsCircuitBreaker.OpenException | AbortedException e) {
+            // STS was not even called
+            result = new Result(target, Status.UNKNOWN, e.getMessage(), account, start);
+        } catch (SdkException e) {
+            LOGGER.log(Level.FINE, "Health check of " + target.key + " failed", e);
+            result = new Result(target, Status.FAILED, e.getMessage(), account, start);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Health check of " + target.key + " failed", e);
+            result = new Result(target, Status.FAILED, e.toString(), account, start);
+        } catch (Error e) {
+            result = new Result(target, Status.FAILED, e.toString(), account, start);
+            throw e;
+        } finally {
+            // whatever happened, or the run would never be done
+            if (result != null) {
+                results.put(target.key, result);
+            }
+            run.add(result != null ? result : new Result(target, Status.UNKNOWN, null, account, start));
+        }
+    }
+
+    public enum Status {
+        FAILED,
+        UNKNOWN,
+        OK
+    }
+
+    private static final class Target {
+        private final String location;
+        private final String key;
+        private final AWSCredentialsImpl credentials;
+
+        Target(String location, AWSCredentialsImpl credentials) {
+            this.location = location;
+            this.key = location + "/" + credentials.getId();
+            this.credentials = credentials;
+        }
+    }
+
+    /**
+     * Outcome of the check of one credential.
+     */
+    public static final class Result {
+        private final String location;
+        private final String key;
+        private final String credentialsId;
+        private final String description;
+        private final Status status;
+        private final String message;
+
+        @CheckForNull
+        private final String account;
+
+        private final long checkedAt;
+        private final long durationMillis;
+
+        Result(Target target, Status status, String message, @CheckForNull String account, long checkedAt) {
+            this.location = target.location;
+            this.key = target.key;
+            this.credentialsId = target.credentials.getId();
+            this.description = Util.fixNull(target.credentials.getDescription());
+            this.status = status;
+            this.message = Util.fixNull(message);
+            this.account = Util.fixEmpty(account);
+            this.checkedAt = checkedAt;
+            this.durationMillis = System.currentTimeMillis() - checkedAt;
+        }
+
+        /**
+         * Full name of the folder holding the credential, empty for the system store.
+         */
+        @NonNull
+        public String getLocation() {
+            return location;
+        }
+
+        /**
+         * Identifies the credential among all the stores.
+         */
+        @NonNull
+        public String getKey() {
+            return key;
+        }
+
+        @NonNull
+        public String getCredentialsId() {
+            return credentialsId;
+        }
+
+        @NonNull
+        public String getDescription() {
+            return description;
+        }
+
+        @NonNull
+        public Status getStatus() {
+            return status;
+        }
+
+        @NonNull
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * AWS account of the long-term keys, if known.
+         */
+        @CheckForNull
+        public String getAccount() {
+            return account;
+        }
+
+        public long getCheckedAt() {
+            return checkedAt;
+        }
+
+        /**
+         * How long ago the credential was checked, for display.
+         */
+        @NonNull
+        public String getCheckedAgo() {
+            return Util.getTimeSpanString(System.currentTimeMillis() - checkedAt);
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        @Override
+        public String toString() {
+            return status + " " + key + ": " + message;
+        }
+    }
+
+    /**
+     * A check of all the credentials, whose results come in as they complete.
+     */
+    public static final class Run {
+        private final long startedAt;
+        private final int total;
+
+        /**
+         * Guarded by this.
+         */
+        private final List<Result> completed = new ArrayList<>();
+
+        private boolean done;
+
+        Run(long startedAt, int total) {
+            this.startedAt = startedAt;
+            this.total = total;
+        }
+
+        public long getStartedAt() {
+            return startedAt;
+        }
+
+        /**
+         * Number of credentials checked by this run.
+         */
+        public int getTotal() {
+            return total;
+        }
+
+        public synchronized int getCompleted() {
+            return completed.size();
+        }
+
+        public synchronized boolean isDone() {
+            return done;
+        }
+
+        /**
+         * Results so far, in the order they completed.
+         */
+        @NonNull
+        public synchronized List<Result> getResults() {
+            return new ArrayList<>(completed);
+        }
+
+        /**
+         * Waits for the results after the given number of results.
+         *
+         * @return the results after {@code from}, empty once the run is done and they were all returned.
+         */
+        @NonNull
+        public synchronized List<Result> await(int from) throws InterruptedException {
+            while (completed.size() <= from && !done) {
+                wait();
+            }
+            return from < completed.size()
+                    ? new ArrayList<>(completed.subList(from, completed.size()))
+                    : Collections.emptyList();
+        }
+
+        /**
+         * Waits for this run to complete, at most for the given time.
+         *
+         * @return whether it completed.
+         */
+        public synchronized boolean join(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            long remaining;
+            while (!done && (remaining = deadline - System.nanoTime()) > 0) {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            return done;
+        }
+
+        synchronized void add(Result result) {
+            completed.add(result);
+            if (completed.size() == total) {
+                done = true;
+                LOGGER.log(Level.FINE, "Checked {0} AWS credentials in {1} ms", new Object[] {
+                    total, System.currentTimeMillis() - startedAt
+                });
+            }
+            notifyAll();
+        }
+
+        synchronized void done() {
+            done = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Checks the credentials not checked during the {@link AWSCredentialsConfiguration#getHealthCheckIntervalHours()
+     * configured interval}, if any, and logs those that are broken.
+     */
+    @Extension
+    public static class PeriodicCheck extends AsyncPeriodicWork {
+
+        public PeriodicCheck() {
+            super("AWS credentials health check");
+        }
+
+        @Override
+        public long getRecurrencePeriod() {
+            return HOUR;
+        }
+
+        @Override
+        protected void execute(TaskListener listener) throws InterruptedException {
+            AWSCredentialsConfiguration config = AWSCredentialsConfiguration.get();
+            int hours = config != null ? config.getHealthCheckIntervalHours() : 0;
+            if (hours <= 0) {
+                return;
+            }
+            // leave some slack as runs of this task drift
+            long maxAge = TimeUnit.HOURS.toMillis(hours) - TimeUnit.MINUTES.toMillis(5);
+            Run run = get().start(maxAge);
+            if (!run.join(getRecurrencePeriod(), TimeUnit.MILLISECONDS)) {
+                LOGGER.log(Level.WARNING, "Checked only {0} of {1} AWS credentials in {2} ms", new Object[] {
+                    run.getCompleted(), run.getTotal(), getRecurrencePeriod()
+                });
+            }
+            int failed = 0;
+            for (Result result : run.getResults()) {
+                if (result.getStatus() == Status.FAILED) {
+                    failed++;
+                    listener.getLogger().println(result);
+                }
+            }
+            if (failed > 0) {
+                LOGGER.log(Level.WARNING, "{0} of {1} AWS credentials failed their health check", new Object[] {
+                    failed, run.getTotal()
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2026, CloudBees, Inc.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import com.cloudbees.plugins.credentials.CredentialsNameProvider;
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.security.ACL;
+import hudson.util.ListBoxModel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import jenkins.model.Jenkins;
+
+/**
+ * Indexes by id the {@link AmazonWebServicesCredentials} visible from each context, so that looking one up does not
+ * go through all the credentials of all the stores. Also keeps their names for list boxes.
+ *
+ * The indexes of a context and of the contexts below it are dropped whenever its credentials store changes, see
+ * {@link CredentialsStoreListener}. As credentials providers are not all backed by a saveable store, indexes are also
+ * rebuilt after {@link #MAX_AGE_MILLIS}, and when an id is not found.
+ */
+final class CredentialsIndex {
+
+    private static final CredentialsIndex INSTANCE = new CredentialsIndex();
+
+    /**
+     * Not final for the script console and tests.
+     */
+    static long MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Guarded by itself. Contexts are compared by identity, and dropped along with their item.
+     */
+    private final Map<ItemGroup<?>, Index> indexes = new WeakHashMap<>();
+
+    /**
+     * Incremented on every change of a credentials store, so that indexes built meanwhile are not kept.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private CredentialsIndex() {}
+
+    static CredentialsIndex get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Same as looking up the {@link AmazonWebServicesCredentials} of the context as {@link ACL#SYSTEM2} and taking
+     * the first one with the given id.
+     */
+    @CheckForNull
+    AmazonWebServicesCredentials find(@NonNull String id, @CheckForNull ItemGroup<?> context) {
+        Index index = index(context, false);
+        AmazonWebServicesCredentials credentials = index.byId.get(id);
+        if (credentials == null && !index.fresh) {
+            // it may have been added to a store that does not notify changes
+            credentials = index(context, true).byId.get(id);
+        }
+        return credentials;
+    }
+
+    /**
+     * The {@link AmazonWebServicesCredentials} visible from the context, as {@link ACL#SYSTEM2}.
+     */
+    @NonNull
+    List<AmazonWebServicesCredentials> list(@CheckForNull ItemGroup<?> context) {
+        return index(context, false).all;
+    }
+
+    /**
+     * Names and ids of the {@link #list(ItemGroup) credentials visible from the context}, for list boxes. The options
+     * are shared and must be copied before use.
+     */
+    @NonNull
+    List<ListBoxModel.Option> options(@CheckForNull ItemGroup<?> context) {
+        Index index = index(context, false);
+        List<ListBoxModel.Option> options = index.options;
+        if (options == null) {
+            List<ListBoxModel.Option> computed = new ArrayList<>(index.all.size());
+            for (AmazonWebServicesCredentials c : index.all) {
+                computed.add(new ListBoxModel.Option(CredentialsNameProvider.name(c), c.getId()));
+            }
+            options = Collections.unmodifiableList(computed);
+            index.options = options;
+        }
+        return options;
+    }
+
+    /**
+     * Drops the indexes of the context and of the contexts below it, as they see the credentials of its store.
+     */
+    void invalidate(@NonNull ItemGroup<?> context) {
+        synchronized (indexes) {
+            generation.incrementAndGet();
+            indexes.keySet().removeIf(key -> isWithin(key, context));
+        }
+    }
+
+    private static boolean isWithin(@NonNull ItemGroup<?> key, @NonNull ItemGroup<?> context) {
+        for (ItemGroup<?> g = key; g != null; g = g instanceof Item ? ((Item) g).getParent() : null) {
+            if (g == context) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Index index(@CheckForNull ItemGroup<?> context, boolean rebuild) {
+        ItemGroup<?> key = context != null ? context : Jenkins.get();
+        long now = System.currentTimeMillis();
+        long current = generation.get();
+        if (!rebuild) {
+            Index index;
+            synchronized (indexes) {
+                index = indexes.get(key);
+            }
+            if (index != null && now - index.builtAt < MAX_AGE_MILLIS) {
+                index.fresh = false;
+                return index;
+            }
+        }
+        Index index = new Index(
+                now,
+                CredentialsProvider.lookupCredentialsInItemGroup(
+                        AmazonWebServicesCredentials.class, key, ACL.SYSTEM2, Collections.emptyList()));
+        synchronized (indexes) {
+            // a store may have changed while it was built
+            if (generation.get() == current) {
+                indexes.put(key, index);
+            }
+        }
+        return index;
+    }
+
+    private static final class Index {
+        private final long builtAt;
+        private final List<AmazonWebServicesCredentials> all;
+        private final Map<String, AmazonWebServicesCredentials> byId;
+
+        @CheckForNull
+        private volatile List<ListBoxModel.Option> options;
+
+        /**
+         * Whether this index was just built, so that there is no point rebuilding it on a miss.
+         */
+        private volatile boolean fresh = true;
+
+        Index(long builtAt, List<AmazonWebServicesCredentials> all) {
+            this.builtAt = builtAt;
+            this.all = Collections.unmodifiableList(all);
+            Map<String, AmazonWebServicesCredentials> byId = new HashMap<>();
+            for (AmazonWebServicesCredentials c : all) {
+                byId.putIfAbsent(c.getId(), c);
+            }
+            this.byId = byId;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2026, CloudBees, Inc.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricSet;
+import com.codahale.metrics.Timer;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import jenkins.metrics.api.MetricProvider;
+import org.jenkinsci.plugins.variant.OptionalExtension;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Publishes {@link CredentialsMetrics} through the Metrics plugin, under {@code aws-credentials.*}.
+ */
+@OptionalExtension(requirePlugins = "metrics")
+@Restricted(NoExternalUse.class)
+public class CredentialsMetricProvider extends MetricProvider {
+
+    private static final String PREFIX = "aws-credentials";
+
+    private final MetricSet metricSet;
+
+    public CredentialsMetricProvider() {
+        Map<String, Metric> metrics = new TreeMap<>();
+        timer(metrics, "sts.assume-role", CredentialsMetrics.STS_ASSUME_ROLE);
+        timer(metrics, "sts.get-session-token", CredentialsMetrics.STS_GET_SESSION_TOKEN);
+        timer(metrics, "sts.get-caller-identity", CredentialsMetrics.STS_GET_CALLER_IDENTITY);
+        timer(metrics, "sts.rate-limit-wait", CredentialsMetrics.STS_RATE_LIMIT_WAIT);
+        timer(metrics, "resolve", CredentialsMetrics.RESOLVE);
+        timer(metrics, "resolve-mfa", CredentialsMetrics.RESOLVE_MFA);
+        timer(metrics, "validate", CredentialsMetrics.VALIDATE);
+        timer(metrics, "bind", CredentialsMetrics.BIND);
+        timer(metrics, "region-detection", CredentialsMetrics.REGION_DETECTION);
+        counter(metrics, "sts.failures", CredentialsMetrics.STS_FAILURES);
+        counter(metrics, "sts.throttles", CredentialsMetrics.STS_THROTTLES);
+        counter(metrics, "clients.sts.created", CredentialsMetrics.STS_CLIENTS_CREATED);
+        counter(metrics, "clients.http.created", CredentialsMetrics.HTTP_CLIENTS_CREATED);
+        counter(metrics, "session-cache.hits", CredentialsMetrics.SESSION_CACHE_HITS);
+        counter(metrics, "session-cache.misses", CredentialsMetrics.SESSION_CACHE_MISSES);
+        counter(metrics, "session-cache.coalesced", CredentialsMetrics.SESSION_CACHE_COALESCED);
+        counter(metrics, "prefetches", CredentialsMetrics.PREFETCHES);
+        counter(metrics, "prefetches.dropped", CredentialsMetrics.PREFETCHES_DROPPED);
+        counter(metrics, "snapshot-renewals", CredentialsMetrics.SNAPSHOT_RENEWALS);
+        metrics.put(MetricRegistry.name(PREFIX, "session-cache.hit-ratio"), (Gauge<Double>)
+                CredentialsMetrics::sessionCacheHitRatio);
+        Map<String, Metric> unmodifiable = Collections.unmodifiableMap(metrics);
+        metricSet = () -> unmodifiable;
+    }
+
+    private static void timer(Map<String, Metric> metrics, String name, CredentialsMetrics.Timer source) {
+        Timer timer = new Timer();
+        source.setListener(nanos -> timer.update(nanos, TimeUnit.NANOSECONDS));
+        metrics.put(MetricRegistry.name(PREFIX, name), timer);
+    }
+
+    private static void counter(Map<String, Metric> metrics, String name, CredentialsMetrics.Counter source) {
+        metrics.put(MetricRegistry.name(PREFIX, name), (Gauge<Long>) source::get);
+    }
+
+    @NonNull
+    @Override
+    public MetricSet getMetricSet() {
+        return metricSet;
+    }
+}
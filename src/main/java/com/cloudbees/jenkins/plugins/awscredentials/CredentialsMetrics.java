@@ -0,0 +1,210 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2026, CloudBees, Inc.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Counters and timers of this plugin, kept in lock free accumulators so that they cost next to nothing.
+ *
+ * When the Metrics plugin is installed, {@link CredentialsMetricProvider} publishes them, and the timers also feed
+ * its histograms.
+ */
+@Restricted(NoExternalUse.class)
+public final class CredentialsMetrics {
+
+    /**
+     * Latency of the STS {@code AssumeRole} calls.
+     */
+    public static final Timer STS_ASSUME_ROLE = new Timer();
+
+    /**
+     * Latency of the STS {@code GetSessionToken} calls.
+     */
+    public static final Timer STS_GET_SESSION_TOKEN = new Timer();
+
+    /**
+     * Latency of the STS {@code GetCallerIdentity} calls.
+     */
+    public static final Timer STS_GET_CALLER_IDENTITY = new Timer();
+
+    /**
+     * Failed STS calls, including the throttled ones.
+     */
+    public static final Counter STS_FAILURES = new Counter();
+
+    /**
+     * Attempts of STS calls rejected because of throttling, including the attempts retried successfully.
+     */
+    public static final Counter STS_THROTTLES = new Counter();
+
+    /**
+     * Time STS calls waited for their turn in {@link StsRateLimiter}.
+     */
+    public static final Timer STS_RATE_LIMIT_WAIT = new Timer();
+
+    public static final Counter STS_CLIENTS_CREATED = new Counter();
+
+    public static final Counter HTTP_CLIENTS_CREATED = new Counter();
+
+    /**
+     * Role sessions served from {@link SessionCredentialsCache}.
+     */
+    public static final Counter SESSION_CACHE_HITS = new Counter();
+
+    /**
+     * Role sessions obtained from STS by {@link SessionCredentialsCache}.
+     */
+    public static final Counter SESSION_CACHE_MISSES = new Counter();
+
+    /**
+     * Cache misses that waited for the STS call of another caller.
+     */
+    public static final Counter SESSION_CACHE_COALESCED = new Counter();
+
+    /**
+     * Credentials resolved ahead of queued builds by {@link CredentialsPrefetcher}.
+     */
+    public static final Counter PREFETCHES = new Counter();
+
+    /**
+     * Prefetches dropped because too many were queued already.
+     */
+    public static final Counter PREFETCHES_DROPPED = new Counter();
+
+    /**
+     * Sessions renewed on the controller for {@link AWSCredentialsSnapshot snapshots} sent to agents.
+     */
+    public static final Counter SNAPSHOT_RENEWALS = new Counter();
+
+    /**
+     * Time taken by {@link AWSCredentialsImpl#resolveCredentials()}.
+     */
+    public static final Timer RESOLVE = new Timer();
+
+    /**
+     * Time taken by {@link AWSCredentialsImpl#resolveCredentials(String)}.
+     */
+    public static final Timer RESOLVE_MFA = new Timer();
+
+    /**
+     * Time taken to validate credentials from the configuration form.
+     */
+    public static final Timer VALIDATE = new Timer();
+
+    /**
+     * Time taken by {@link AmazonWebServicesCredentialsBinding#bind}.
+     */
+    public static final Timer BIND = new Timer();
+
+    public static final Timer REGION_DETECTION = new Timer();
+
+    private CredentialsMetrics() {}
+
+    /**
+     * Ratio of the role sessions served without a call to STS of their own, {@code NaN} before any.
+     */
+    public static double sessionCacheHitRatio() {
+        return ratio(SESSION_CACHE_HITS.get() + SESSION_CACHE_COALESCED.get(), SESSION_CACHE_MISSES.get());
+    }
+
+    private static double ratio(long hits, long misses) {
+        return hits + misses == 0 ? Double.NaN : (double) hits / (hits + misses);
+    }
+
+    /**
+     * A monotonic counter.
+     */
+    public static final class Counter {
+        private final LongAdder count = new LongAdder();
+
+        void increment() {
+            count.increment();
+        }
+
+        public long get() {
+            return count.sum();
+        }
+    }
+
+    /**
+     * Counts events and accumulates their duration.
+     */
+    public static final class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        @CheckForNull
+        private volatile LongConsumer listener;
+
+        /**
+         * @return the start time to pass to {@link #stop(long)}.
+         */
+        long start() {
+            return System.nanoTime();
+        }
+
+        void stop(long start) {
+            record(System.nanoTime() - start);
+        }
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            LongConsumer l = listener;
+            if (l != null) {
+                l.accept(nanos);
+            }
+        }
+
+        /**
+         * Also reports the durations recorded from now on to the given listener.
+         */
+        void setListener(@NonNull LongConsumer listener) {
+            this.listener = listener;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2026, CloudBees, Inc.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.model.ItemGroup;
+import hudson.model.Job;
+import hudson.model.Queue;
+import hudson.model.queue.QueueListener;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Warms the session cache for builds waiting in the queue, so that their bindings find the role sessions ready instead
+ * of holding an executor while STS answers.
+ *
+ * What a build will bind is only known once it runs, pipelines in particular, so the credentials bound by each job are
+ * {@link #record recorded} and resolved in the background the next time the job, or one of its {@code node} blocks,
+ * enters the queue. Only the {@link #MAX_USAGES_PER_JOB} latest usages of the {@link #MAX_JOBS} latest jobs are kept.
+ *
+ * @see AWSCredentialsConfiguration#isPrefetchOnQueue()
+ */
+@Extension
+@Restricted(NoExternalUse.class)
+public final class CredentialsPrefetcher extends QueueListener {
+
+    private static final Logger LOGGER = Logger.getLogger(CredentialsPrefetcher.class.getName());
+
+    static final int MAX_JOBS = 1000;
+
+    static final int MAX_USAGES_PER_JOB = 10;
+
+    static final int WORKERS = 2;
+
+    static final int MAX_QUEUED = 100;
+
+    /**
+     * Prefetches beyond {@link #MAX_QUEUED} are dropped: the builds will resolve their credentials themselves.
+     */
+    static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
+            WORKERS,
+            WORKERS,
+            0,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(MAX_QUEUED),
+            new NamingThreadFactory(new DaemonThreadFactory(), "AWS credentials prefetch"),
+            (r, executor) -> {
+                CredentialsMetrics.PREFETCHES_DROPPED.increment();
+                LOGGER.log(Level.FINE, "Too many credentials prefetches queued, dropping one");
+            });
+
+    /**
+     * Usages by full name of job, then by what they bind. Guarded by itself, in access order.
+     */
+    private static final LinkedHashMap<String, LinkedHashMap<String, Prefetch>> USAGES =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Remembers that a build of the job used some credentials.
+     *
+     * @param job the job.
+     * @param key identifies what was bound, e.g. the credentials id and role.
+     * @param prefetch resolves the same credentials again.
+     */
+    static void record(@NonNull Job<?, ?> job, @NonNull String key, @NonNull Prefetch prefetch) {
+        if (!isEnabled()) {
+            return;
+        }
+        synchronized (USAGES) {
+            LinkedHashMap<String, Prefetch> usages =
+                    USAGES.computeIfAbsent(job.getFullName(), k -> new LinkedHashMap<>(4, 0.75f, true));
+            usages.put(key, prefetch);
+            trim(usages, MAX_USAGES_PER_JOB);
+            trim(USAGES, MAX_JOBS);
+        }
+    }
+
+    static void clear() {
+        synchronized (USAGES) {
+            USAGES.clear();
+        }
+    }
+
+    private static void trim(Map<String, ?> map, int maxSize) {
+        Iterator<?> it = map.values().iterator();
+        while (map.size() > maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    @Override
+    public void onEnterWaiting(Queue.WaitingItem wi) {
+        if (!isEnabled()) {
+            return;
+        }
+        Queue.Task owner = wi.task.getOwnerTask();
+        if (!(owner instanceof Job)) {
+            return;
+        }
+        Job<?, ?> job = (Job<?, ?>) owner;
+        List<Prefetch> prefetches;
+        synchronized (USAGES) {
+            Map<String, Prefetch> usages = USAGES.get(job.getFullName());
+            if (usages == null) {
+                return;
+            }
+            prefetches = new ArrayList<>(usages.values());
+        }
+        for (Prefetch prefetch : prefetches) {
+            submit(job.getFullName(), job.getParent(), prefetch);
+        }
+    }
+
+    static void submit(@NonNull String jobName, @NonNull ItemGroup<?> context, @NonNull Prefetch prefetch) {
+        EXECUTOR.execute(() -> {
+            try {
+                prefetch.prefetch(context);
+                CredentialsMetrics.PREFETCHES.increment();
+            } catch (RuntimeException e) {
+                // the build will get the error itself
+                LOGGER.log(Level.FINE, "Failed to prefetch credentials for " + jobName, e);
+            }
+        });
+    }
+
+    private static boolean isEnabled() {
+        AWSCredentialsConfiguration config = AWSCredentialsConfiguration.get();
+        return config != null && config.isPrefetchOnQueue();
+    }
+
+    /**
+     * Resolves credentials as a build would, to warm the caches.
+     */
+    interface Prefetch {
+        /**
+         * @param context where the job lives, to look the credentials up.
+         */
+        void prefetch(@NonNull ItemGroup<?> context);
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2026, CloudBees, Inc.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import com.cloudbees.plugins.credentials.Credentials;
+import com.cloudbees.plugins.credentials.CredentialsNameProvider;
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import com.cloudbees.plugins.credentials.CredentialsStore;
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+import com.cloudbees.plugins.credentials.domains.Domain;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.Saveable;
+import hudson.model.listeners.SaveableListener;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import jenkins.model.Jenkins;
+
+/**
+ * Keeps the caches of this plugin in sync with the credentials stores: when the credentials of a store changed on a
+ * save, the indexes of its context and of the contexts below it are dropped, as well as state derived from credentials
+ * that were updated in or removed from that very store.
+ *
+ * Credentials of different stores may share an id, so what a store held is only compared with what it holds now, by
+ * {@link AWSCredentialsImpl#fingerprint() fingerprint}. What each store held is recorded once all the items are
+ * loaded, and then on each of its saves.
+ */
+@Extension
+public class CredentialsStoreListener extends SaveableListener {
+
+    /**
+     * What each store holds, by context of the store. Guarded by itself, contexts are compared by identity and dropped
+     * along with their item. Stores without {@link AmazonWebServicesCredentials} are left out.
+     */
+    private static final Map<ItemGroup<?>, Contents> CONTENTS = new WeakHashMap<>();
+
+    @Override
+    public void onChange(Saveable o, XmlFile file) {
+        ItemGroup<?> context = context(o);
+        if (context == null) {
+            return;
+        }
+        Contents current = contents(context);
+        Contents previous = record(context, current);
+        if (previous == null ? current.isEmpty() : previous.isSameAs(current)) {
+            // saved for another reason, such as the configuration of a folder
+            return;
+        }
+        CredentialsIndex.get().invalidate(context);
+        Set<String> removed = removed(previous, current);
+        if (!removed.isEmpty()) {
+            SessionCredentialsCache.get().evict(removed);
+            StsClientRegistry.get().evict(removed);
+            AWSCredentialsSnapshot.evict(removed);
+        }
+    }
+
+    /**
+     * Records what each store holds once all the items are loaded.
+     */
+    @Initializer(after = InitMilestone.JOB_CONFIG_ADAPTED)
+    public static void recordAll() {
+        Jenkins jenkins = Jenkins.get();
+        record(jenkins, contents(jenkins));
+        for (Item item : jenkins.allItems()) {
+            if (item instanceof ItemGroup) {
+                ItemGroup<?> group = (ItemGroup<?>) item;
+                record(group, contents(group));
+            }
+        }
+    }
+
+    @CheckForNull
+    private static ItemGroup<?> context(Saveable o) {
+        if (o instanceof SystemCredentialsProvider) {
+            return Jenkins.get();
+        }
+        if (o instanceof Item && o instanceof ItemGroup) {
+            // folders carry their own credentials store
+            return (ItemGroup<?>) o;
+        }
+        return null;
+    }
+
+    /**
+     * Records what the store of the context holds now.
+     *
+     * @return what it held before, {@code null} if nothing was recorded.
+     */
+    @CheckForNull
+    private static Contents record(@NonNull ItemGroup<?> context, @NonNull Contents current) {
+        synchronized (CONTENTS) {
+            return current.isEmpty() ? CONTENTS.remove(context) : CONTENTS.put(context, current);
+        }
+    }
+
+    /**
+     * @return the fingerprints of the credentials the store held before and no other store holds, that is those
+     *     removed.
+     */
+    @NonNull
+    private static Set<String> removed(@CheckForNull Contents previous, @NonNull Contents current) {
+        Set<String> removed = new HashSet<>();
+        if (previous == null || current.fingerprints.containsAll(previous.fingerprints)) {
+            return removed;
+        }
+        removed.addAll(previous.fingerprints);
+        removed.removeAll(current.fingerprints);
+        synchronized (CONTENTS) {
+            // the same credential may have been copied to another store
+            for (Contents other : CONTENTS.values()) {
+                removed.removeAll(other.fingerprints);
+            }
+        }
+        return removed;
+    }
+
+    @NonNull
+    private static Contents contents(@NonNull ItemGroup<?> context) {
+        Contents contents = new Contents();
+        try (ACLContext ignored = ACL.as2(ACL.SYSTEM2)) {
+            for (CredentialsStore store : CredentialsProvider.lookupStores(context)) {
+                if (store.getContext() != context) {
+                    // stores of the parents are visible from here but did not change
+                    continue;
+                }
+                for (Domain domain : store.getDomains()) {
+                    for (Credentials c : store.getCredentials(domain)) {
+                        if (!(c instanceof AmazonWebServicesCredentials)) {
+                            continue;
+                        }
+                        AmazonWebServicesCredentials aws = (AmazonWebServicesCredentials) c;
+                        String version = aws.getId() + ":" + CredentialsNameProvider.name(aws);
+                        if (aws instanceof AWSCredentialsImpl) {
+                            String fingerprint = ((AWSCredentialsImpl) aws).fingerprint();
+                            contents.fingerprints.add(fingerprint);
+                            version += ":" + fingerprint;
+                        }
+                        contents.credentials.add(aws);
+                        contents.versions.add(version);
+                    }
+                }
+            }
+        }
+        return contents;
+    }
+
+    private static final class Contents {
+        /**
+         * The {@link AmazonWebServicesCredentials}, in the order of the store. Indexes hand out those very objects, so
+         * they are compared by reference.
+         */
+        private final List<AmazonWebServicesCredentials> credentials = new ArrayList<>();
+
+        /**
+         * Id, name and fingerprint of each of the {@link #credentials}, for those updated in place.
+         */
+        private final List<String> versions = new ArrayList<>();
+
+        /**
+         * Fingerprints of the {@link AWSCredentialsImpl}.
+         */
+        private final Set<String> fingerprints = new HashSet<>();
+
+        boolean isEmpty() {
+            return credentials.isEmpty();
+        }
+
+        boolean isSameAs(@NonNull Contents other) {
+            if (credentials.size() != other.credentials.size() || !versions.equals(other.versions)) {
+                return false;
+            }
+            for (int i = 0; i < credentials.size(); i++) {
+                if (credentials.get(i) != other.credentials.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2026, CloudBees, Inc.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.FormValidation;
+import hudson.util.NamingThreadFactory;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import jenkins.util.SystemProperties;
+
+/**
+ * Runs the credentials checks of the configuration forms on a bounded pool, and remembers their results for a short
+ * while so that editing a form does not repeat the same calls to AWS.
+ *
+ * The request thread only waits {@link #WAIT_MILLIS} for the check, so that slow AWS calls do not hold the threads of
+ * the web server. A check that takes longer keeps running in the background, the form tells to check again, and the
+ * next identical check gets its result.
+ */
+final class CredentialsValidator {
+
+    /**
+     * How long the AWS calls of a check may take. Not final for the script console.
+     */
+    static long TIMEOUT_SECONDS =
+            SystemProperties.getLong(CredentialsValidator.class.getName() + ".timeoutSeconds", 10L);
+
+    /**
+     * How long a form check waits for its result before telling to check again. Not final for the script console.
+     */
+    static long WAIT_MILLIS = SystemProperties.getLong(CredentialsValidator.class.getName() + ".waitMillis", 1000L);
+
+    static final long CACHE_TTL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final int CACHE_SIZE = 100;
+
+    static final int MAX_RUNNING = 4;
+
+    static final int MAX_QUEUED = 100;
+
+    /**
+     * Checks that miss the deadline keep their thread, so both the threads and the queue are bounded.
+     */
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
+            MAX_RUNNING,
+            MAX_RUNNING,
+            1,
+            TimeUnit.MINUTES,
+            new ArrayBlockingQueue<>(MAX_QUEUED),
+            new NamingThreadFactory(new DaemonThreadFactory(), "AWS credentials validation"));
+
+    static {
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Checks by digest of their inputs, guarded by itself, in access order.
+     */
+    private static final LinkedHashMap<String, Check> CHECKS = new LinkedHashMap<>(16, 0.75f, true);
+
+    private CredentialsValidator() {}
+
+    /**
+     * Timeout to set on the AWS calls of the checks, so that they do not linger after the deadline.
+     */
+    @NonNull
+    static Duration apiCallTimeout() {
+        return Duration.ofSeconds(TIMEOUT_SECONDS);
+    }
+
+    /**
+     * Runs the check, or reuses the result of an identical one, and waits for it up to {@link #WAIT_MILLIS}.
+     *
+     * @param digest identifies the inputs of the check, without disclosing secrets.
+     * @param check the check.
+     * @return its result, or a warning to check again if it is still running.
+     */
+    @NonNull
+    static FormValidation validate(@NonNull String digest, @NonNull Supplier<FormValidation> check) {
+        Check c;
+        synchronized (CHECKS) {
+            long now = System.currentTimeMillis();
+            c = CHECKS.get(digest);
+            if (c == null || c.isExpired(now)) {
+                try {
+                    c = new Check(CompletableFuture.supplyAsync(check, EXECUTOR));
+                } catch (RejectedExecutionException e) {
+                    return FormValidation.warning(Messages.AWSCredentialsImpl_ValidationBusy());
+                }
+                CHECKS.put(digest, c);
+                Iterator<Check> it = CHECKS.values().iterator();
+                while (CHECKS.size() > CACHE_SIZE && it.hasNext()) {
+                    it.next();
+                    it.remove();
+                }
+            }
+        }
+        try {
+            return c.result.get(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return FormValidation.warning(Messages.AWSCredentialsImpl_ValidationPending());
+        } catch (ExecutionException e) {
+            return FormValidation.error(e.getCause(), e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return FormValidation.error(e, e.getMessage());
+        }
+    }
+
+    static void clear() {
+        synchronized (CHECKS) {
+            CHECKS.clear();
+        }
+    }
+
+    private static final class Check {
+        private final CompletableFuture<FormValidation> result;
+        private volatile long completedAt = Long.MAX_VALUE;
+
+        Check(CompletableFuture<FormValidation> result) {
+            this.result = result;
+            result.whenComplete((r, e) -> completedAt = System.currentTimeMillis());
+        }
+
+        boolean isExpired(long now) {
+            return now - completedAt > CACHE_TTL_MILLIS;
+        }
+    }
+}
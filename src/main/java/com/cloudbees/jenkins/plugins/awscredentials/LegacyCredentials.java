@@ -0,0 +1,71 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2026, CloudBees, Inc.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.AWSSessionCredentials;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.auth.BasicSessionCredentials;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.Objects;
+import software.amazon.awssdk.auth.credentials.AwsCredentials;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+
+/**
+ * Adapts credentials of the AWS SDK v2 to the AWS SDK v1, for the deprecated callers of
+ * {@link AmazonWebServicesCredentials#getCredentials()}.
+ *
+ * Kept apart so that the classes of the SDK v1 are only loaded the first time such a caller shows up, not along with
+ * the credentials themselves.
+ */
+final class LegacyCredentials {
+
+    private LegacyCredentials() {}
+
+    @NonNull
+    static AWSCredentials of(@NonNull AwsCredentials awsCredentials) {
+        Objects.requireNonNull(awsCredentials);
+        if (awsCredentials instanceof AwsSessionCredentials) {
+            return of((AwsSessionCredentials) awsCredentials);
+        }
+        return new BasicAWSCredentials(
+                awsCredentials.accessKeyId(),
+                awsCredentials.secretAccessKey(),
+                awsCredentials.accountId().orElse(null),
+                awsCredentials.providerName().orElse(null));
+    }
+
+    @NonNull
+    static AWSSessionCredentials of(@NonNull AwsSessionCredentials awsSessionCredentials) {
+        Objects.requireNonNull(awsSessionCredentials);
+        return new BasicSessionCredentials(
+                awsSessionCredentials.accessKeyId(),
+                awsSessionCredentials.secretAccessKey(),
+                awsSessionCredentials.sessionToken(),
+                awsSessionCredentials.accountId().orElse(null),
+                awsSessionCredentials.providerName().orElse(null));
+    }
+}
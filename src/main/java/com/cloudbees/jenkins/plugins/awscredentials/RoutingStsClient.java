@@ -0,0 +1,276 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2026, CloudBees, Inc.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.sts.StsClient;
+import software.amazon.awssdk.services.sts.model.AssumeRoleRequest;
+import software.amazon.awssdk.services.sts.model.AssumeRoleResponse;
+import software.amazon.awssdk.services.sts.model.GetCallerIdentityRequest;
+import software.amazon.awssdk.services.sts.model.GetCallerIdentityResponse;
+import software.amazon.awssdk.services.sts.model.GetSessionTokenRequest;
+import software.amazon.awssdk.services.sts.model.GetSessionTokenResponse;
+
+/**
+ * {@link StsClient} spreading calls over the {@link AWSCredentialsConfiguration#getStsRegions() preferred STS regions}.
+ *
+ * Each call goes to the healthy endpoint with the lowest observed latency, endpoints not measured yet coming first in
+ * the configured order. The time calls wait for the {@link StsRateLimiter rate limits} is not latency of the endpoint
+ * and is left out. When an endpoint cannot be reached, times out or fails on its side, the call fails over to the next
+ * one and the endpoint is set aside for {@link #UNHEALTHY_MILLIS}. When the {@link StsCircuitBreaker circuit} of the
+ * endpoint is open, the call fails over as well, but the endpoint is not set aside, as circuits are per account. Other
+ * errors are returned to the caller straight away, throttling in particular: STS throttles the calling account only,
+ * and the rate limits and the retries of the SDK deal with it.
+ *
+ * Only the operations used by this plugin are routed: {@code AssumeRole}, {@code GetSessionToken} and
+ * {@code GetCallerIdentity}. The others throw {@link UnsupportedOperationException}.
+ */
+final class RoutingStsClient implements StsClient {
+
+    private static final Logger LOGGER = Logger.getLogger(RoutingStsClient.class.getName());
+
+    static final long UNHEALTHY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * Weight of the latest call in the latency average.
+     */
+    private static final double LATENCY_WEIGHT = 0.2;
+
+    /**
+     * Health of each endpoint, shared by all the clients talking to it.
+     */
+    private static final ConcurrentMap<String, EndpointStats> STATS = new ConcurrentHashMap<>();
+
+    private final List<Target> targets;
+
+    /**
+     * @param endpoints the endpoints in order of preference.
+     * @param factory builds the client of an endpoint.
+     */
+    RoutingStsClient(@NonNull List<Endpoint> endpoints, @NonNull Function<Endpoint, StsClient> factory) {
+        List<Target> targets = new ArrayList<>();
+        for (Endpoint endpoint : endpoints) {
+            targets.add(new Target(
+                    endpoint, factory.apply(endpoint), STATS.computeIfAbsent(endpoint.id(), k -> new EndpointStats())));
+        }
+        this.targets = Collections.unmodifiableList(targets);
+    }
+
+    /**
+     * Parses the preferred STS regions setting: one region per line or comma, optionally followed by {@code =} and
+     * the URL of the endpoint to use for it.
+     */
+    @NonNull
+    static List<Endpoint> parse(@CheckForNull String spec) {
+        List<Endpoint> endpoints = new ArrayList<>();
+        if (spec == null) {
+            return endpoints;
+        }
+        for (String item : spec.split("[,\\s]+")) {
+            if (item.isEmpty()) {
+                continue;
+            }
+            int eq = item.indexOf('=');
+            if (eq < 0) {
+                endpoints.add(new Endpoint(Region.of(item), null));
+            } else {
+                URI uri = URI.create(item.substring(eq + 1));
+                if (uri.getScheme() == null || uri.getHost() == null) {
+                    throw new IllegalArgumentException(item.substring(eq + 1));
+                }
+                endpoints.add(new Endpoint(Region.of(item.substring(0, eq)), uri));
+            }
+        }
+        return endpoints;
+    }
+
+    @Override
+    public AssumeRoleResponse assumeRole(AssumeRoleRequest request) {
+        return call(client -> client.assumeRole(request));
+    }
+
+    @Override
+    public GetSessionTokenResponse getSessionToken(GetSessionTokenRequest request) {
+        return call(client -> client.getSessionToken(request));
+    }
+
+    @Override
+    public GetCallerIdentityResponse getCallerIdentity(GetCallerIdentityRequest request) {
+        return call(client -> client.getCallerIdentity(request));
+    }
+
+    private <T> T call(Function<StsClient, T> operation) {
+        SdkException failure = null;
+        for (Target target : order(System.currentTimeMillis())) {
+            long start = System.nanoTime();
+            long waited = StsRateLimiter.waitedNanos();
+            try {
+                T result = operation.apply(target.client);
+                // leave out the time spent waiting for the rate limit
+                long latency = System.nanoTime() - start - (StsRateLimiter.waitedNanos() - waited);
+                target.stats.succeeded(TimeUnit.NANOSECONDS.toMillis(latency));
+                return result;
+            } catch (SdkException e) {
+                if (isThrottling(e) || !StsCircuitBreaker.isUnhealthy(e)) {
+                    throw e;
+                }
+                LOGGER.log(
+                        Level.FINE,
+                        "STS endpoint " + target.endpoint.id() + " failed, trying the next one: " + e.getMessage());
+                if (!(e instanceof StsCircuitBreaker.OpenException)) {
+                    target.stats.failed(System.currentTimeMillis());
+                }
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        throw failure;
+    }
+
+    private static boolean isThrottling(SdkException e) {
+        return e instanceof AwsServiceException && ((AwsServiceException) e).isThrottlingException();
+    }
+
+    /**
+     * Orders the targets to try: healthy ones by latency, then the others in case all are down.
+     */
+    private List<Target> order(long now) {
+        List<Target> healthy = new ArrayList<>();
+        List<Target> unhealthy = new ArrayList<>();
+        for (Target target : targets) {
+            (target.stats.isHealthy(now) ? healthy : unhealthy).add(target);
+        }
+        // stable sort: unmeasured endpoints keep their configured order
+        healthy.sort(Comparator.comparingDouble(t -> t.stats.latencyMillis()));
+        healthy.addAll(unhealthy);
+        return healthy;
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+        targets.forEach(t -> t.client.close());
+    }
+
+    /**
+     * An STS endpoint: a region, and the URL to reach it at if not the default one of the region.
+     */
+    static final class Endpoint {
+        private final Region region;
+        private final URI uri;
+
+        Endpoint(@NonNull Region region, @CheckForNull URI uri) {
+            this.region = region;
+            this.uri = uri;
+        }
+
+        @NonNull
+        Region getRegion() {
+            return region;
+        }
+
+        @CheckForNull
+        URI getUri() {
+            return uri;
+        }
+
+        String id() {
+            return uri != null ? region.id() + "=" + uri : region.id();
+        }
+
+        @Override
+        public String toString() {
+            return id();
+        }
+    }
+
+    private static final class Target {
+        private final Endpoint endpoint;
+        private final StsClient client;
+        private final EndpointStats stats;
+
+        Target(Endpoint endpoint, StsClient client, EndpointStats stats) {
+            this.endpoint = endpoint;
+            this.client = client;
+            this.stats = stats;
+        }
+    }
+
+    /**
+     * Latency and health of an endpoint.
+     */
+    static final class EndpointStats {
+        /**
+         * Moving average of the latency, {@code 0} until measured so that unmeasured endpoints get tried.
+         */
+        private volatile double latencyMillis;
+
+        private volatile long unhealthyUntil;
+
+        double latencyMillis() {
+            return latencyMillis;
+        }
+
+        boolean isHealthy(long now) {
+            return now >= unhealthyUntil;
+        }
+
+        synchronized void succeeded(long millis) {
+            latencyMillis = latencyMillis == 0 ? millis : latencyMillis + LATENCY_WEIGHT * (millis - latencyMillis);
+            unhealthyUntil = 0;
+        }
+
+        void failed(long now) {
+            unhealthyUntil = now + UNHEALTHY_MILLIS;
+        }
+    }
+
+    static void resetStats() {
+        STATS.clear();
+    }
+}
@@ -0,0 +1,613 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2026, CloudBees, Inc.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.util.Timer;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+import software.amazon.awssdk.core.exception.SdkException;
+
+/**
+ * Bounded, expiry-aware cache of the sessions obtained by assuming IAM roles.
+ *
+ * Entries are looked up by {@link Key} and by the fingerprint of the credential configuration they were obtained
+ * with, and are only handed out while they are valid for longer than the configured
+ * {@link AWSCredentialsConfiguration#getSessionExpiryMarginSeconds() expiry margin}. A credential updated in place thus
+ * never reuses a session of its previous version, and credentials of different stores sharing an id do not share
+ * sessions. Roles assumed from a role session, such as the role of a binding on top of the role of its credential, get
+ * entries of their own keyed by the session they are assumed from, so that each hop of a chain is reused and refreshed
+ * on its own. The least recently used entries are dropped once
+ * {@link AWSCredentialsConfiguration#getSessionCacheSize() the size limit} is reached.
+ *
+ * Callers missing the same session at the same time share a single STS call, and all get its result or its failure.
+ *
+ * When {@link AWSCredentialsConfiguration#isSessionRefreshAhead() enabled}, sessions that were used recently are
+ * refreshed in the background before they stop being handed out, so that resolving a credential does not wait for STS
+ * in steady state.
+ *
+ * When STS {@link StsCircuitBreaker#isUnhealthy(SdkException) is unhealthy}, sessions past the expiry margin keep being
+ * handed out until they actually expire, rather than failing the builds that need them.
+ *
+ * When {@link AWSCredentialsConfiguration#isSessionCachePersistent() enabled}, sessions are also kept in a
+ * {@link SessionCredentialsStore} and looked up there on a miss, so that they survive restarts.
+ */
+final class SessionCredentialsCache {
+
+    private static final Logger LOGGER = Logger.getLogger(SessionCredentialsCache.class.getName());
+
+    /**
+     * Not final for tests driving the time of the sessions of credentials.
+     */
+    static SessionCredentialsCache INSTANCE = new SessionCredentialsCache();
+
+    /**
+     * Guarded by {@code this}; iteration order is access order.
+     */
+    private final LinkedHashMap<Slot, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * STS calls in progress, by the key of the session they obtain.
+     */
+    private final ConcurrentMap<Slot, Flight> inFlight = new ConcurrentHashMap<>();
+
+    private final Clock clock;
+
+    /**
+     * Schedules the refreshes ahead of expiry.
+     */
+    private final Supplier<ScheduledExecutorService> scheduler;
+
+    /**
+     * Runs the refreshes ahead of expiry, which call STS.
+     */
+    private final Executor refresher;
+
+    private SessionCredentialsCache() {
+        this(Clock.systemUTC(), Timer::get, StsBackgroundCalls.EXECUTOR);
+    }
+
+    /**
+     * For tests only, production code uses {@link #get()}. Refreshes run on the scheduler.
+     */
+    SessionCredentialsCache(@NonNull Clock clock, @NonNull Supplier<ScheduledExecutorService> scheduler) {
+        this(clock, scheduler, Runnable::run);
+    }
+
+    private SessionCredentialsCache(
+            @NonNull Clock clock, @NonNull Supplier<ScheduledExecutorService> scheduler, @NonNull Executor refresher) {
+        this.clock = clock;
+        this.scheduler = scheduler;
+        this.refresher = refresher;
+    }
+
+    static SessionCredentialsCache get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns a cached session for the given key, or obtains a new one from {@code loader} and caches it.
+     *
+     * @param key the session key.
+     * @param fingerprint fingerprint of the credential configuration used to obtain the session.
+     * @param loader performs the actual STS call, now or later on to refresh the session ahead of its expiry.
+     * @return the session credentials.
+     */
+    @NonNull
+    AwsSessionCredentials getSession(
+            @NonNull Key key, @NonNull String fingerprint, @NonNull Supplier<AwsSessionCredentials> loader) {
+        return getSession(key, fingerprint, loader, true);
+    }
+
+    /**
+     * Returns a cached session for the given key, or obtains a new one from {@code loader} and caches it.
+     *
+     * @param key the session key.
+     * @param fingerprint fingerprint of the credential configuration used to obtain the session.
+     * @param loader performs the actual STS call.
+     * @param refreshable whether {@code loader} may be called again later to refresh the session ahead of its expiry,
+     *     {@code false} e.g. when it needs a one-time MFA code.
+     * @return the session credentials.
+     */
+    @NonNull
+    AwsSessionCredentials getSession(
+            @NonNull Key key,
+            @NonNull String fingerprint,
+            @NonNull Supplier<AwsSessionCredentials> loader,
+            boolean refreshable) {
+        int maxSize = maxSize();
+        if (maxSize == 0) {
+            CredentialsMetrics.SESSION_CACHE_MISSES.increment();
+            return loader.get();
+        }
+        Slot slot = new Slot(key, fingerprint);
+        AwsSessionCredentials cached = lookup(slot);
+        if (cached == null) {
+            cached = restore(slot, refreshable ? loader : null, maxSize);
+        }
+        if (cached != null) {
+            CredentialsMetrics.SESSION_CACHE_HITS.increment();
+            return cached;
+        }
+        // Concurrent misses for the same session share a single STS call
+        Flight flight = new Flight();
+        Flight existing = inFlight.putIfAbsent(slot, flight);
+        if (existing != null) {
+            CredentialsMetrics.SESSION_CACHE_COALESCED.increment();
+            return existing.await();
+        }
+        try {
+            // the previous flight may have landed between the lookup and now
+            AwsSessionCredentials session = lookup(slot);
+            if (session == null) {
+                CredentialsMetrics.SESSION_CACHE_MISSES.increment();
+                session = loader.get();
+                put(slot, session, refreshable ? loader : null, maxSize, clock.millis());
+                persist(slot, session);
+            }
+            flight.result.complete(session);
+            return session;
+        } catch (SdkException e) {
+            AwsSessionCredentials stale = stale(slot, e);
+            if (stale != null) {
+                flight.result.complete(stale);
+                return stale;
+            }
+            flight.result.completeExceptionally(e);
+            throw e;
+        } catch (RuntimeException | Error e) {
+            flight.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(slot, flight);
+        }
+    }
+
+    @CheckForNull
+    private synchronized AwsSessionCredentials lookup(Slot slot) {
+        Entry entry = entries.get(slot);
+        if (entry == null) {
+            return null;
+        }
+        Instant now = clock.instant();
+        if (!entry.isUsable(now, marginSeconds())) {
+            if (!now.isBefore(entry.expiration)) {
+                remove(slot);
+            }
+            // otherwise kept in case STS is unhealthy, until replaced
+            return null;
+        }
+        entry.lastUsed = clock.millis();
+        return entry.session;
+    }
+
+    /**
+     * Caches the session stored for the key before a restart, if any, and returns it if it can be handed out.
+     */
+    @CheckForNull
+    private AwsSessionCredentials restore(
+            Slot slot, @CheckForNull Supplier<AwsSessionCredentials> loader, int maxSize) {
+        SessionCredentialsStore store = store();
+        if (store == null) {
+            return null;
+        }
+        SessionCredentialsStore.Stored stored = store.load(slot.key, slot.fingerprint);
+        if (stored == null) {
+            return null;
+        }
+        synchronized (this) {
+            if (!entries.containsKey(slot)) {
+                LOGGER.log(Level.FINE, "Restored the stored session of {0}", slot.key);
+                put(slot, stored.session, loader, maxSize, clock.millis());
+            }
+        }
+        return lookup(slot);
+    }
+
+    /**
+     * Returns the session to hand out in place of a new one when STS is unhealthy.
+     */
+    @CheckForNull
+    private synchronized AwsSessionCredentials stale(Slot slot, SdkException failure) {
+        if (!StsCircuitBreaker.isUnhealthy(failure)) {
+            return null;
+        }
+        Entry entry = entries.get(slot);
+        if (entry == null || !clock.instant().isBefore(entry.expiration)) {
+            return null;
+        }
+        LOGGER.log(Level.WARNING, "Could not renew the session of {0}, using it until {1}: {2}", new Object[] {
+            slot.key, entry.expiration, failure.getMessage()
+        });
+        entry.lastUsed = clock.millis();
+        return entry.session;
+    }
+
+    private synchronized void put(
+            Slot slot,
+            AwsSessionCredentials session,
+            @CheckForNull Supplier<AwsSessionCredentials> loader,
+            int maxSize,
+            long lastUsed) {
+        Instant expiration = session.expirationTime().orElse(null);
+        if (expiration == null) {
+            // nothing tells us when to stop handing it out
+            return;
+        }
+        Entry entry = new Entry(session, expiration, loader, lastUsed);
+        Entry previous = entries.put(slot, entry);
+        if (previous != null) {
+            previous.discard();
+        }
+        Iterator<Map.Entry<Slot, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            Map.Entry<Slot, Entry> eldest = it.next();
+            eldest.getValue().discard();
+            it.remove();
+            unpersist(eldest.getKey());
+        }
+        scheduleRefresh(slot, entry);
+    }
+
+    private void remove(Slot slot) {
+        Entry entry = entries.remove(slot);
+        if (entry != null) {
+            entry.discard();
+            unpersist(slot);
+        }
+    }
+
+    private static void persist(Slot slot, AwsSessionCredentials session) {
+        SessionCredentialsStore store = store();
+        Instant expiration = session.expirationTime().orElse(null);
+        if (store != null && expiration != null) {
+            store.save(slot.key, slot.fingerprint, session, expiration);
+        }
+    }
+
+    private static void unpersist(Slot slot) {
+        SessionCredentialsStore store = store();
+        if (store != null) {
+            store.delete(slot.key, slot.fingerprint);
+        }
+    }
+
+    /**
+     * Schedules the refresh of a session shortly before it stops being handed out, so that callers do not have to
+     * wait for STS. Refresh times are spread randomly over the last fifth of the session lifetime to avoid bursts of
+     * STS calls when many sessions were obtained at once.
+     */
+    private void scheduleRefresh(Slot slot, Entry entry) {
+        AWSCredentialsConfiguration config = AWSCredentialsConfiguration.get();
+        if (entry.loader == null || config == null || !config.isSessionRefreshAhead()) {
+            return;
+        }
+        long now = clock.millis();
+        long usableFor = entry.expiration.toEpochMilli()
+                - TimeUnit.SECONDS.toMillis(config.getSessionExpiryMarginSeconds())
+                - now;
+        if (usableFor <= 0) {
+            return;
+        }
+        long delay = usableFor - ThreadLocalRandom.current().nextLong(usableFor / 5 + 1);
+        entry.refresh = scheduler.get().schedule(() -> submitRefresh(slot, entry), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void submitRefresh(Slot slot, Entry entry) {
+        try {
+            refresher.execute(() -> refresh(slot, entry));
+        } catch (RejectedExecutionException e) {
+            // the next caller after the expiry margin will obtain a session itself
+            LOGGER.log(Level.FINE, "Too many STS calls queued, not refreshing the session of {0}", slot.key);
+        }
+    }
+
+    private void refresh(Slot slot, Entry entry) {
+        if (entry.discarded) {
+            return;
+        }
+        AWSCredentialsConfiguration config = AWSCredentialsConfiguration.get();
+        long idleMillis = clock.millis() - entry.lastUsed;
+        if (config == null || idleMillis > TimeUnit.MINUTES.toMillis(config.getSessionRefreshIdleMinutes())) {
+            // let it expire
+            LOGGER.log(Level.FINE, "Not refreshing idle session of {0}", slot.key);
+            return;
+        }
+        AwsSessionCredentials session;
+        try {
+            session = entry.loader.get();
+        } catch (RuntimeException e) {
+            // the next caller after the expiry margin will try again, and get the error
+            LOGGER.log(Level.WARNING, "Failed to refresh the session of " + slot.key, e);
+            return;
+        }
+        synchronized (this) {
+            if (!entry.discarded) {
+                LOGGER.log(Level.FINE, "Refreshed session of {0}", slot.key);
+                put(slot, session, entry.loader, maxSize(), entry.lastUsed);
+                persist(slot, session);
+            }
+        }
+    }
+
+    /**
+     * Drops the sessions of credentials that were removed from their store, or whose configuration changed.
+     *
+     * @param fingerprints the {@link AWSCredentialsImpl#fingerprint() fingerprints} of the credentials removed.
+     */
+    synchronized void evict(@NonNull Set<String> fingerprints) {
+        Iterator<Map.Entry<Slot, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Slot, Entry> e = it.next();
+            if (fingerprints.contains(e.getKey().fingerprint)) {
+                LOGGER.log(Level.FINE, "Evicting cached session of {0}", e.getKey().key);
+                e.getValue().discard();
+                it.remove();
+                unpersist(e.getKey());
+            }
+        }
+    }
+
+    /**
+     * Drops the sessions held in memory. Stored sessions are kept, as on a restart.
+     */
+    synchronized void clear() {
+        entries.values().forEach(Entry::discard);
+        entries.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private static int maxSize() {
+        AWSCredentialsConfiguration config = AWSCredentialsConfiguration.get();
+        return config != null ? config.getSessionCacheSize() : AWSCredentialsConfiguration.DEFAULT_SESSION_CACHE_SIZE;
+    }
+
+    @CheckForNull
+    private static SessionCredentialsStore store() {
+        AWSCredentialsConfiguration config = AWSCredentialsConfiguration.get();
+        return config != null && config.isSessionCachePersistent() ? SessionCredentialsStore.get() : null;
+    }
+
+    private static int marginSeconds() {
+        AWSCredentialsConfiguration config = AWSCredentialsConfiguration.get();
+        return config != null
+                ? config.getSessionExpiryMarginSeconds()
+                : AWSCredentialsConfiguration.DEFAULT_SESSION_EXPIRY_MARGIN_SECONDS;
+    }
+
+    /**
+     * Identifies the role session of a credential, or of a role assumed from another role session of it.
+     */
+    static final class Key {
+        /**
+         * Not a valid role session name, so that MFA sessions never clash with role sessions.
+         */
+        private static final String MFA_SESSION_NAME = "\0mfa";
+
+        /**
+         * Same for the {@link #keysSession sessions of long-term keys}.
+         */
+        private static final String KEYS_SESSION_NAME = "\0keys";
+
+        private final String credentialsId;
+
+        /**
+         * The role, or the MFA device of {@link #mfaSession MFA sessions}.
+         */
+        private final String roleArn;
+
+        private final String externalId;
+        private final String roleSessionName;
+        private final int durationSeconds;
+
+        @CheckForNull
+        private final Key source;
+
+        Key(String credentialsId, String roleArn, String externalId, int durationSeconds) {
+            this(null, credentialsId, roleArn, externalId, "Jenkins", durationSeconds);
+        }
+
+        /**
+         * Identifies the session obtained with {@code GetSessionToken} by authenticating with an MFA device.
+         */
+        static Key mfaSession(String credentialsId, String serialNumber, int durationSeconds) {
+            return new Key(null, credentialsId, serialNumber, null, MFA_SESSION_NAME, durationSeconds);
+        }
+
+        /**
+         * Identifies the session obtained with {@code GetSessionToken} in exchange for the long-term keys alone.
+         */
+        static Key keysSession(String credentialsId, int durationSeconds) {
+            return new Key(null, credentialsId, "", null, KEYS_SESSION_NAME, durationSeconds);
+        }
+
+        /**
+         * @param source the session the role is assumed from, {@code null} if assumed with long-term keys.
+         */
+        Key(
+                @CheckForNull Key source,
+                String credentialsId,
+                String roleArn,
+                String externalId,
+                String roleSessionName,
+                int durationSeconds) {
+            this.source = source;
+            this.credentialsId = Objects.requireNonNull(credentialsId);
+            this.roleArn = Objects.requireNonNull(roleArn);
+            this.externalId = externalId == null ? "" : externalId;
+            this.roleSessionName = Objects.requireNonNull(roleSessionName);
+            this.durationSeconds = durationSeconds;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return durationSeconds == key.durationSeconds
+                    && credentialsId.equals(key.credentialsId)
+                    && roleArn.equals(key.roleArn)
+                    && externalId.equals(key.externalId)
+                    && roleSessionName.equals(key.roleSessionName)
+                    && Objects.equals(source, key.source);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(credentialsId, roleArn, externalId, roleSessionName, durationSeconds, source);
+        }
+
+        /**
+         * Identifies the session across restarts.
+         */
+        String id() {
+            String id = String.join(
+                    ":", credentialsId, roleArn, externalId, roleSessionName, String.valueOf(durationSeconds));
+            return source != null ? source.id() + " -> " + id : id;
+        }
+
+        @Override
+        public String toString() {
+            return source != null ? source + " -> " + roleArn : credentialsId + ":" + roleArn;
+        }
+    }
+
+    /**
+     * A session of a given version of a credential.
+     */
+    private static final class Slot {
+        private final Key key;
+        private final String fingerprint;
+
+        Slot(Key key, String fingerprint) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Slot)) {
+                return false;
+            }
+            Slot slot = (Slot) o;
+            return key.equals(slot.key) && fingerprint.equals(slot.fingerprint);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(key, fingerprint);
+        }
+    }
+
+    /**
+     * An STS call whose result is shared by all the callers asking for the same session meanwhile.
+     */
+    private static final class Flight {
+        private final CompletableFuture<AwsSessionCredentials> result = new CompletableFuture<>();
+
+        AwsSessionCredentials await() {
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw e;
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final AwsSessionCredentials session;
+        private final Instant expiration;
+        /**
+         * {@code null} if the session cannot be refreshed.
+         */
+        @CheckForNull
+        private final Supplier<AwsSessionCredentials> loader;
+
+        private volatile long lastUsed;
+        private volatile boolean discarded;
+        private volatile ScheduledFuture<?> refresh;
+
+        Entry(
+                AwsSessionCredentials session,
+                Instant expiration,
+                Supplier<AwsSessionCredentials> loader,
+                long lastUsed) {
+            this.session = session;
+            this.expiration = expiration;
+            this.loader = loader;
+            this.lastUsed = lastUsed;
+        }
+
+        void discard() {
+            discarded = true;
+            ScheduledFuture<?> r = refresh;
+            if (r != null) {
+                r.cancel(false);
+            }
+        }
+
+        boolean isUsable(Instant now, int marginSeconds) {
+            return now.plusSeconds(marginSeconds).isBefore(expiration);
+        }
+    }
+}
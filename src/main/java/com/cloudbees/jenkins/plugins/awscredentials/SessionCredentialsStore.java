@@ -0,0 +1,311 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2026, CloudBees, Inc.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Util;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import hudson.util.Secret;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+
+/**
+ * Keeps the sessions of the {@link SessionCredentialsCache} on disk, so that they are still valid after a restart
+ * instead of all the resumed builds assuming their roles at once.
+ *
+ * Each session is a file of its own, written when the session is cached and deleted when it is dropped. Its content
+ * is encrypted with {@link Secret}, that is with a key of the {@code ConfidentialStore} of the controller, and the
+ * session expiry is part of its name so that expired sessions are deleted without decrypting them. Writes go through
+ * a single thread, in order, off the threads resolving credentials. Files are only read back the first time their
+ * session is looked up after a restart.
+ *
+ * @see AWSCredentialsConfiguration#isSessionCachePersistent()
+ */
+final class SessionCredentialsStore {
+
+    private static final Logger LOGGER = Logger.getLogger(SessionCredentialsStore.class.getName());
+
+    /**
+     * Directory of the sessions, under the Jenkins home.
+     */
+    static final String DIRECTORY = "aws-credentials-sessions";
+
+    private static final String SUFFIX = ".session";
+
+    private static SessionCredentialsStore instance;
+
+    private final Path directory;
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(
+            new NamingThreadFactory(new DaemonThreadFactory(), "AWS session cache writer"));
+
+    /**
+     * Files written before the restart and not read yet, by {@link #name(SessionCredentialsCache.Key, String) name}
+     * of their session. Guarded by this, {@code null} until the directory is listed.
+     */
+    @CheckForNull
+    private Map<String, Path> unread;
+
+    SessionCredentialsStore(@NonNull Path directory) {
+        this.directory = directory;
+    }
+
+    @NonNull
+    static synchronized SessionCredentialsStore get() {
+        if (instance == null) {
+            instance = new SessionCredentialsStore(new File(Jenkins.get().getRootDir(), DIRECTORY).toPath());
+        }
+        return instance;
+    }
+
+    /**
+     * Reads back the session written for the key and fingerprint before the restart, if any and still valid. Each
+     * file is read once at most, sessions cached since the restart are in memory already.
+     */
+    @CheckForNull
+    Stored load(@NonNull SessionCredentialsCache.Key key, @NonNull String fingerprint) {
+        Path file;
+        synchronized (this) {
+            if (unread == null) {
+                unread = list();
+            }
+            if (unread.isEmpty()) {
+                return null;
+            }
+            file = unread.remove(name(key, fingerprint));
+        }
+        if (file == null) {
+            return null;
+        }
+        try {
+            Stored stored = read(key, fingerprint, file);
+            if (stored != null) {
+                return stored;
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.FINE, "Could not read the stored session of " + key, e);
+        }
+        delete(file);
+        return null;
+    }
+
+    /**
+     * Writes the session of the key and fingerprint, replacing its previous one.
+     */
+    void save(
+            @NonNull SessionCredentialsCache.Key key,
+            @NonNull String fingerprint,
+            @NonNull AwsSessionCredentials session,
+            @NonNull Instant expiration) {
+        String name = name(key, fingerprint);
+        forget(name);
+        writer.execute(() -> {
+            try {
+                Files.createDirectories(directory);
+                deleteFiles(name);
+                Properties properties = new Properties();
+                properties.setProperty("key", key.id());
+                properties.setProperty("fingerprint", fingerprint);
+                properties.setProperty("accessKeyId", session.accessKeyId());
+                properties.setProperty("secretAccessKey", session.secretAccessKey());
+                properties.setProperty("sessionToken", session.sessionToken());
+                properties.setProperty("expiration", expiration.toString());
+                session.accountId().ifPresent(account -> properties.setProperty("accountId", account));
+                StringWriter content = new StringWriter();
+                properties.store(content, null);
+                Path file = directory.resolve(name + "-" + expiration.getEpochSecond() + SUFFIX);
+                Path tmp = directory.resolve(file.getFileName() + ".tmp");
+                Files.write(
+                        tmp,
+                        Secret.fromString(content.toString())
+                                .getEncryptedValue()
+                                .getBytes(StandardCharsets.UTF_8));
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Could not store the session of " + key, e);
+            }
+        });
+    }
+
+    /**
+     * Deletes the session of the key and fingerprint.
+     */
+    void delete(@NonNull SessionCredentialsCache.Key key, @NonNull String fingerprint) {
+        String name = name(key, fingerprint);
+        forget(name);
+        writer.execute(() -> deleteFiles(name));
+    }
+
+    /**
+     * Deletes all the sessions.
+     */
+    void deleteAll() {
+        synchronized (this) {
+            unread = new HashMap<>();
+        }
+        writer.execute(() -> deleteFiles(null));
+    }
+
+    /**
+     * Waits for the pending writes, for tests.
+     */
+    void flush() throws Exception {
+        Future<?> done = writer.submit(() -> {});
+        done.get();
+    }
+
+    private synchronized void forget(String name) {
+        if (unread != null) {
+            unread.remove(name);
+        }
+    }
+
+    /**
+     * Lists the files of the sessions that are still valid, deleting the others.
+     */
+    private Map<String, Path> list() {
+        Map<String, Path> files = new HashMap<>();
+        if (!Files.isDirectory(directory)) {
+            return files;
+        }
+        long now = Instant.now().getEpochSecond();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                String fileName = file.getFileName().toString();
+                int dash = fileName.lastIndexOf('-');
+                long expiration = -1;
+                if (dash > 0 && fileName.endsWith(SUFFIX)) {
+                    try {
+                        expiration = Long.parseLong(fileName.substring(dash + 1, fileName.length() - SUFFIX.length()));
+                    } catch (NumberFormatException e) {
+                        // not ours
+                    }
+                }
+                if (expiration > now) {
+                    files.put(fileName.substring(0, dash), file);
+                } else {
+                    delete(file);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not list the stored sessions", e);
+        }
+        LOGGER.log(Level.FINE, "Found {0} stored sessions", files.size());
+        return files;
+    }
+
+    @CheckForNull
+    private static Stored read(SessionCredentialsCache.Key key, String fingerprint, Path file) throws IOException {
+        Secret secret = Secret.decrypt(new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim());
+        if (secret == null) {
+            // e.g. the secret key of the controller changed
+            return null;
+        }
+        Properties properties = new Properties();
+        properties.load(new StringReader(secret.getPlainText()));
+        if (!key.id().equals(properties.getProperty("key"))
+                || !fingerprint.equals(properties.getProperty("fingerprint"))) {
+            return null;
+        }
+        Instant expiration = Instant.parse(properties.getProperty("expiration"));
+        if (!Instant.now().isBefore(expiration)) {
+            return null;
+        }
+        AwsSessionCredentials session = AwsSessionCredentials.builder()
+                .accessKeyId(properties.getProperty("accessKeyId"))
+                .secretAccessKey(properties.getProperty("secretAccessKey"))
+                .sessionToken(properties.getProperty("sessionToken"))
+                .accountId(properties.getProperty("accountId"))
+                .expirationTime(expiration)
+                .build();
+        return new Stored(properties.getProperty("fingerprint"), session);
+    }
+
+    /**
+     * Deletes the files of the session with the given name, or all of them.
+     */
+    private void deleteFiles(@CheckForNull String name) {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> stream =
+                Files.newDirectoryStream(directory, name != null ? name + "-*" : "*" + SUFFIX)) {
+            for (Path file : stream) {
+                delete(file);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not delete stored sessions", e);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not delete " + file, e);
+        }
+    }
+
+    /**
+     * Name of the file of a session, without disclosing the role or the credential.
+     */
+    private static String name(SessionCredentialsCache.Key key, String fingerprint) {
+        return Util.getDigestOf(key.id() + ":" + fingerprint);
+    }
+
+    /**
+     * A session read back from disk.
+     */
+    static final class Stored {
+        final String fingerprint;
+        final AwsSessionCredentials session;
+
+        Stored(String fingerprint, AwsSessionCredentials session) {
+            this.fingerprint = fingerprint;
+            this.session = session;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2026, CloudBees, Inc.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.init.Terminator;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+
+/**
+ * Process wide default credentials provider chain of the SDK, used by the {@link AWSCredentialsImpl} without keys of
+ * their own, typically delegating to the EC2 instance profile or the ECS/EKS container credentials.
+ *
+ * Left to themselves, each AWS client builds its own chain, that looks again through the environment and the profiles
+ * and fetches an IMDS token and the role credentials from the metadata endpoint, so several round trips every time a
+ * client is built. This one chain remembers which provider answered and refreshes the instance or container
+ * credentials in the background before they expire, so that resolving credentials never waits for the metadata
+ * endpoint in steady state.
+ */
+@Restricted(NoExternalUse.class)
+public final class SharedDefaultCredentialsProvider {
+
+    /**
+     * What the clients get: it looks the chain up on each call, so that it keeps working once {@link #shutdown()}
+     * closed the chain.
+     */
+    private static final AwsCredentialsProvider SHARED = () -> chain().resolveCredentials();
+
+    @CheckForNull
+    private static volatile DefaultCredentialsProvider chain;
+
+    /**
+     * Whether Jenkins is shutting down, so that the chain must no longer refresh credentials in the background.
+     */
+    private static volatile boolean shutDown;
+
+    private SharedDefaultCredentialsProvider() {}
+
+    /**
+     * Returns the shared provider. Callers must not close it.
+     */
+    @NonNull
+    static AwsCredentialsProvider get() {
+        return SHARED;
+    }
+
+    @NonNull
+    private static DefaultCredentialsProvider chain() {
+        DefaultCredentialsProvider c = chain;
+        if (c != null) {
+            return c;
+        }
+        synchronized (SharedDefaultCredentialsProvider.class) {
+            if (chain == null) {
+                // once shut down, the callers refresh the credentials rather than a thread nobody would stop
+                chain = DefaultCredentialsProvider.builder()
+                        .reuseLastProviderEnabled(true)
+                        .asyncCredentialUpdateEnabled(!shutDown)
+                        .build();
+            }
+            return chain;
+        }
+    }
+
+    /**
+     * Jenkins may start again in the same JVM, as in tests.
+     */
+    @Initializer(after = InitMilestone.PLUGINS_STARTED)
+    public static void start() {
+        shutDown = false;
+    }
+
+    @Terminator
+    public static void shutdown() {
+        DefaultCredentialsProvider c;
+        synchronized (SharedDefaultCredentialsProvider.class) {
+            shutDown = true;
+            c = chain;
+            chain = null;
+        }
+        if (c != null) {
+            c.close();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2026, CloudBees, Inc.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.ProxyConfiguration;
+import hudson.Util;
+import hudson.XmlFile;
+import hudson.init.Terminator;
+import hudson.model.Saveable;
+import hudson.model.listeners.SaveableListener;
+import hudson.util.Secret;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import jenkins.model.GlobalConfiguration;
+import jenkins.model.Jenkins;
+import jenkins.util.Timer;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+
+/**
+ * Process wide pooled {@link SdkHttpClient} shared by all the AWS clients of this plugin.
+ *
+ * The client is rebuilt when the Jenkins {@link ProxyConfiguration} or the connection settings of
+ * {@link AWSCredentialsConfiguration} change, as they are saved. The replaced client is closed after a grace period so
+ * that calls already in flight can complete.
+ */
+@Restricted(NoExternalUse.class)
+public final class SharedHttpClient {
+
+    private static final Logger LOGGER = Logger.getLogger(SharedHttpClient.class.getName());
+
+    /**
+     * How long a replaced client is kept open.
+     */
+    private static final long CLOSE_GRACE_PERIOD_SECONDS = 60;
+
+    @CheckForNull
+    private static volatile SdkHttpClient client;
+
+    /**
+     * The proxy and connection settings {@link #client} was built with. Guarded by the class.
+     */
+    private static String settings;
+
+    private SharedHttpClient() {}
+
+    /**
+     * Returns the shared client. Callers must not close it.
+     */
+    @NonNull
+    static SdkHttpClient get() {
+        SdkHttpClient c = client;
+        return c != null ? c : refresh();
+    }
+
+    /**
+     * Rebuilds the client if the settings it depends on changed.
+     */
+    @NonNull
+    static synchronized SdkHttpClient refresh() {
+        ProxyConfiguration proxy = proxy();
+        AWSCredentialsConfiguration config = AWSCredentialsConfiguration.get();
+        String current = describe(proxy, config);
+        if (client == null || !current.equals(settings)) {
+            SdkHttpClient previous = client;
+            client = build(proxy, config);
+            settings = current;
+            if (previous != null) {
+                LOGGER.log(Level.FINE, "Proxy or connection settings changed, replacing the shared HTTP client");
+                Timer.get().schedule(previous::close, CLOSE_GRACE_PERIOD_SECONDS, TimeUnit.SECONDS);
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Describes the settings the client depends on, to detect changes.
+     */
+    @NonNull
+    static String describe(@CheckForNull ProxyConfiguration proxy, @CheckForNull AWSCredentialsConfiguration config) {
+        StringBuilder sb = new StringBuilder();
+        if (proxy != null && proxy.name != null && !proxy.name.isEmpty()) {
+            sb.append(proxy.name).append(':').append(proxy.port);
+            sb.append(';').append(Util.fixNull(proxy.getUserName()));
+            sb.append(';').append(Util.getDigestOf(Secret.toString(proxy.getSecretPassword())));
+            sb.append(';').append(Util.fixNull(proxy.noProxyHost));
+        }
+        if (config != null) {
+            sb.append('|').append(config.getHttpMaxConnections());
+            sb.append(';').append(config.getHttpConnectionMaxIdleSeconds());
+            sb.append(';').append(config.isHttpTcpKeepAlive());
+            sb.append(';').append(config.getHttpConnectTimeoutSeconds());
+            sb.append(';').append(config.getHttpReadTimeoutSeconds());
+        }
+        return sb.toString();
+    }
+
+    private static SdkHttpClient build(
+            @CheckForNull ProxyConfiguration proxy, @CheckForNull AWSCredentialsConfiguration config) {
+        ApacheHttpClient.Builder builder = ApacheHttpClient.builder();
+        if (proxy != null && proxy.name != null && !proxy.name.isEmpty()) {
+            software.amazon.awssdk.http.apache.ProxyConfiguration.Builder proxyConfiguration =
+                    software.amazon.awssdk.http.apache.ProxyConfiguration.builder()
+                            .endpoint(URI.create(String.format("http://%s:%s", proxy.name, proxy.port)));
+            if (proxy.getUserName() != null) {
+                proxyConfiguration.username(proxy.getUserName());
+                proxyConfiguration.password(Secret.toString(proxy.getSecretPassword()));
+            }
+            List<Pattern> patterns = proxy.getNoProxyHostPatterns();
+            if (patterns != null && !patterns.isEmpty()) {
+                patterns.stream().map(Pattern::pattern).forEach(proxyConfiguration::addNonProxyHost);
+            }
+            builder.proxyConfiguration(proxyConfiguration.build());
+        }
+        if (config != null) {
+            builder.maxConnections(config.getHttpMaxConnections())
+                    .connectionMaxIdleTime(Duration.ofSeconds(config.getHttpConnectionMaxIdleSeconds()))
+                    .tcpKeepAlive(config.isHttpTcpKeepAlive())
+                    .connectionTimeout(Duration.ofSeconds(config.getHttpConnectTimeoutSeconds()))
+                    .socketTimeout(Duration.ofSeconds(config.getHttpReadTimeoutSeconds()));
+        }
+        CredentialsMetrics.HTTP_CLIENTS_CREATED.increment();
+        return builder.build();
+    }
+
+    @CheckForNull
+    private static ProxyConfiguration proxy() {
+        Jenkins instance = Jenkins.getInstanceOrNull();
+        return instance != null ? instance.proxy : null;
+    }
+
+    @Extension
+    public static final class Listener extends SaveableListener {
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            // the proxy may also change along with a global configuration or the one of Jenkins
+            if (o instanceof ProxyConfiguration || o instanceof GlobalConfiguration || o instanceof Jenkins) {
+                if (client != null) {
+                    refresh();
+                }
+            }
+        }
+    }
+
+    @Terminator
+    public static synchronized void shutdown() {
+        if (client != null) {
+            client.close();
+            client = null;
+            settings = null;
+        }
+    }
+}
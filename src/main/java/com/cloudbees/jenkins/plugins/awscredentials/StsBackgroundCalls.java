@@ -0,0 +1,61 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2026, CloudBees, Inc.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the STS calls made in the background: refreshes of sessions ahead of their expiry, renewals of the sessions
+ * served to agents and lookups of the accounts of long-term keys.
+ *
+ * Such calls may block for minutes on the rate limits, timeouts and retries of STS, so they do not run on
+ * {@link jenkins.util.Timer}, whose few threads also run the periodic work of Jenkins itself. Timer only schedules
+ * them.
+ */
+final class StsBackgroundCalls {
+
+    static final int WORKERS = 4;
+
+    static final int MAX_QUEUED = 1000;
+
+    /**
+     * Calls beyond {@link #MAX_QUEUED} are rejected with a {@link RejectedExecutionException}, for the caller to drop
+     * or retry them later.
+     */
+    static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
+            WORKERS,
+            WORKERS,
+            0,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(MAX_QUEUED),
+            new NamingThreadFactory(new DaemonThreadFactory(), "AWS credentials STS calls"));
+
+    private StsBackgroundCalls() {}
+}
@@ -0,0 +1,236 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2026, CloudBees, Inc.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.exception.ApiCallAttemptTimeoutException;
+import software.amazon.awssdk.core.exception.ApiCallTimeoutException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.services.sts.model.AssumeRoleRequest;
+
+/**
+ * Circuit breakers around the STS calls, one per endpoint and target account.
+ *
+ * After {@link AWSCredentialsConfiguration#getStsCircuitBreakerThreshold()} consecutive calls fail because STS is
+ * {@link #isUnhealthy(SdkException) unhealthy}, the circuit opens: calls fail straight away with an
+ * {@link OpenException} for {@link AWSCredentialsConfiguration#getStsCircuitBreakerOpenSeconds()}, instead of
+ * holding executors while STS recovers. A single trial call is then let through, which closes the circuit if it
+ * succeeds and opens it again otherwise.
+ *
+ * {@link SessionCredentialsCache} serves sessions that are due for renewal but not expired yet while STS is unhealthy,
+ * and {@link RoutingStsClient} fails over to the next endpoint.
+ */
+final class StsCircuitBreaker {
+
+    private static final Logger LOGGER = Logger.getLogger(StsCircuitBreaker.class.getName());
+
+    private static final ConcurrentMap<String, StsCircuitBreaker> BREAKERS = new ConcurrentHashMap<>();
+
+    private final String name;
+
+    /**
+     * Guarded by {@code this}.
+     */
+    private int failures;
+
+    private long openUntil;
+
+    private boolean trialInProgress;
+
+    private StsCircuitBreaker(String name) {
+        this.name = name;
+    }
+
+    @NonNull
+    static StsCircuitBreaker get(@NonNull String endpoint, @NonNull String account) {
+        return BREAKERS.computeIfAbsent(endpoint + "|" + account, StsCircuitBreaker::new);
+    }
+
+    static void reset() {
+        BREAKERS.clear();
+    }
+
+    /**
+     * Whether the error tells that STS cannot serve calls right now, as opposed to e.g. access denied.
+     */
+    static boolean isUnhealthy(@NonNull SdkException e) {
+        if (e instanceof OpenException) {
+            return true;
+        }
+        if (e instanceof AwsServiceException) {
+            AwsServiceException ase = (AwsServiceException) e;
+            return ase.isThrottlingException() || ase.statusCode() >= 500;
+        }
+        if (e instanceof ApiCallTimeoutException || e instanceof ApiCallAttemptTimeoutException) {
+            return true;
+        }
+        if (e instanceof SdkClientException) {
+            for (Throwable t = e.getCause(); t != null; t = t.getCause()) {
+                if (t instanceof IOException) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a call may go through.
+     *
+     * @throws OpenException if the circuit is open.
+     */
+    synchronized void acquire(long now) {
+        if (threshold() <= 0 || failures < threshold()) {
+            return;
+        }
+        if (now < openUntil || trialInProgress) {
+            throw new OpenException(name);
+        }
+        trialInProgress = true;
+    }
+
+    synchronized void succeeded() {
+        failures = 0;
+        trialInProgress = false;
+    }
+
+    synchronized void failed(long now) {
+        trialInProgress = false;
+        failures++;
+        int threshold = threshold();
+        if (threshold > 0 && failures >= threshold) {
+            if (now >= openUntil) {
+                LOGGER.log(Level.WARNING, "STS is failing for {0}, failing calls fast for {1} seconds", new Object[] {
+                    name, openSeconds()
+                });
+            }
+            openUntil = now + TimeUnit.SECONDS.toMillis(openSeconds());
+        }
+    }
+
+    /**
+     * Calls that completed without telling anything about the health of STS, e.g. access denied.
+     */
+    synchronized void released() {
+        trialInProgress = false;
+    }
+
+    private static int threshold() {
+        AWSCredentialsConfiguration config = AWSCredentialsConfiguration.get();
+        return config != null
+                ? config.getStsCircuitBreakerThreshold()
+                : AWSCredentialsConfiguration.DEFAULT_STS_CIRCUIT_BREAKER_THRESHOLD;
+    }
+
+    private static int openSeconds() {
+        AWSCredentialsConfiguration config = AWSCredentialsConfiguration.get();
+        return config != null
+                ? config.getStsCircuitBreakerOpenSeconds()
+                : AWSCredentialsConfiguration.DEFAULT_STS_CIRCUIT_BREAKER_OPEN_SECONDS;
+    }
+
+    /**
+     * Thrown instead of calling STS while the circuit is open.
+     */
+    static final class OpenException extends SdkClientException {
+        private static final long serialVersionUID = 1L;
+
+        OpenException(String name) {
+            super(SdkClientException.builder()
+                    .message("STS is unhealthy for " + name + ", not calling it for now")
+                    .writableStackTrace(false));
+        }
+    }
+
+    /**
+     * Guards the calls of an STS client with the breaker of their endpoint and account.
+     */
+    static final class Interceptor implements ExecutionInterceptor {
+        private final String endpoint;
+
+        /**
+         * @param endpoint identifies the endpoint of the client.
+         */
+        Interceptor(@NonNull String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        @Override
+        public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+            breaker(context.request()).acquire(System.currentTimeMillis());
+        }
+
+        @Override
+        public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+            breaker(context.request()).succeeded();
+        }
+
+        @Override
+        public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+            Throwable e = context.exception();
+            if (e instanceof OpenException) {
+                return;
+            }
+            StsCircuitBreaker breaker = breaker(context.request());
+            if (e instanceof SdkException && isUnhealthy((SdkException) e)) {
+                breaker.failed(System.currentTimeMillis());
+            } else {
+                breaker.released();
+            }
+        }
+
+        private StsCircuitBreaker breaker(SdkRequest request) {
+            return get(endpoint, account(request));
+        }
+
+        /**
+         * Account of the role assumed, if any.
+         */
+        private static String account(SdkRequest request) {
+            if (request instanceof AssumeRoleRequest) {
+                String roleArn = ((AssumeRoleRequest) request).roleArn();
+                // arn:partition:iam::account:role/name
+                String[] parts = roleArn != null ? roleArn.split(":", 6) : new String[0];
+                if (parts.length == 6) {
+                    return parts[4];
+                }
+            }
+            return "";
+        }
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2026, CloudBees, Inc.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.init.Terminator;
+import hudson.model.PeriodicWork;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.sts.StsClient;
+
+/**
+ * Keeps the {@link StsClient}s of this plugin so that they are built once per base identity, region and HTTP client
+ * rather than on every credential resolution. When {@link AWSCredentialsConfiguration#getStsRegions() preferred STS
+ * regions} are configured, the clients are {@link RoutingStsClient}s spreading the calls over them.
+ *
+ * Clients handed out by this registry are shared and must not be closed by callers. They are closed once they have not
+ * been used for {@link #IDLE_TIMEOUT_MILLIS}, or when the credential they were built for is updated or removed.
+ */
+@Restricted(NoExternalUse.class)
+public final class StsClientRegistry {
+
+    private static final Logger LOGGER = Logger.getLogger(StsClientRegistry.class.getName());
+
+    private static final StsClientRegistry INSTANCE = new StsClientRegistry();
+
+    static final long IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final long CLOSE_GRACE_PERIOD_SECONDS = 60;
+
+    /**
+     * Identity of clients that use the default credentials provider chain of the SDK.
+     */
+    static final String DEFAULT_CHAIN_IDENTITY = "default";
+
+    /**
+     * Overrides the STS endpoint, e.g. to go through a VPC endpoint. Not final for the script console and tests.
+     */
+    static String ENDPOINT = SystemProperties.getString(StsClientRegistry.class.getName() + ".endpoint");
+
+    /**
+     * The last malformed preferred STS regions warned about.
+     */
+    @CheckForNull
+    private static volatile String malformedRegions;
+
+    private final ConcurrentMap<Key, Entry> clients = new ConcurrentHashMap<>();
+
+    private StsClientRegistry() {}
+
+    static StsClientRegistry get() {
+        return INSTANCE;
+    }
+
+    @NonNull
+    private static List<RoutingStsClient.Endpoint> preferredRegions(
+            @CheckForNull AWSCredentialsConfiguration config) {
+        String spec = config != null ? config.getStsRegions() : null;
+        try {
+            return RoutingStsClient.parse(spec);
+        } catch (IllegalArgumentException e) {
+            // only the configuration form checks them
+            if (!spec.equals(malformedRegions)) {
+                malformedRegions = spec;
+                LOGGER.log(Level.WARNING, "Ignoring the preferred STS regions, malformed endpoint: {0}", e.getMessage());
+            }
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Returns the shared client for the given base identity.
+     *
+     * @param owner id of the credential the client is built for, if any, for logging.
+     * @param ownerFingerprint {@link AWSCredentialsImpl#fingerprint() fingerprint} of the owner when the client was
+     *     requested, so that the client can be closed when the credential changes.
+     * @param identity identifies the base credentials, without disclosing them.
+     * @param provider provides the base credentials, {@code null} to let the client build its own default credentials
+     *     provider chain, see {@link SharedDefaultCredentialsProvider}.
+     * @return the shared client.
+     */
+    @NonNull
+    StsClient getClient(
+            @CheckForNull String owner,
+            @CheckForNull String ownerFingerprint,
+            @NonNull String identity,
+            @CheckForNull AwsCredentialsProvider provider) {
+        SdkHttpClient httpClient = SharedHttpClient.get();
+        AWSCredentialsConfiguration config = AWSCredentialsConfiguration.get();
+        List<RoutingStsClient.Endpoint> preferred = preferredRegions(config);
+        Key key;
+        Function<Key, Entry> factory;
+        if (preferred.isEmpty()) {
+            Region region = AWSCredentialsImpl.determineClientRegion();
+            String endpoint = ENDPOINT;
+            key = new Key(
+                    identity,
+                    endpoint != null ? region.id() + "=" + endpoint : region.id(),
+                    settings(config),
+                    httpClient);
+            factory = k -> {
+                LOGGER.log(Level.FINE, "Building STS client in {0} for {1}", new Object[] {region, owner});
+                StsClient client = AWSCredentialsImpl.buildStsClient(
+                        provider, identity, region, endpoint != null ? URI.create(endpoint) : null, httpClient);
+                return new Entry(owner, ownerFingerprint, client);
+            };
+        } else {
+            key = new Key(identity, preferred.toString(), settings(config), httpClient);
+            factory = k -> {
+                LOGGER.log(Level.FINE, "Building STS client in {0} for {1}", new Object[] {preferred, owner});
+                StsClient client = new RoutingStsClient(
+                        preferred,
+                        e -> AWSCredentialsImpl.buildStsClient(
+                                provider, identity, e.getRegion(), e.getUri(), httpClient));
+                return new Entry(owner, ownerFingerprint, client);
+            };
+        }
+        // marked as used atomically with the lookup, so that closeIdle cannot close the client handed out here
+        Entry entry = clients.compute(key, (k, e) -> {
+            Entry used = e != null ? e : factory.apply(k);
+            used.lastUsed = System.currentTimeMillis();
+            return used;
+        });
+        return entry.client;
+    }
+
+    /**
+     * Describes the settings the clients are built with, so that they are rebuilt when those change.
+     */
+    private static String settings(@CheckForNull AWSCredentialsConfiguration config) {
+        return config != null ? config.getStsApiCallTimeoutSeconds() + ";" + config.getStsMaxAttempts() : "";
+    }
+
+    /**
+     * Closes the clients of credentials that were removed from their store, or whose configuration changed.
+     *
+     * @see SessionCredentialsCache#evict(Set)
+     */
+    void evict(@NonNull Set<String> fingerprints) {
+        Iterator<Map.Entry<Key, Entry>> it = clients.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next().getValue();
+            if (entry.ownerFingerprint != null && fingerprints.contains(entry.ownerFingerprint)) {
+                it.remove();
+                // the client may be shared with other credentials using the same keys and in use right now
+                Timer.get().schedule(() -> close(entry), CLOSE_GRACE_PERIOD_SECONDS, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    void closeIdle(long now) {
+        for (Key key : clients.keySet()) {
+            Entry[] idle = new Entry[1];
+            // checked within the same remapping as getClient marks entries as used
+            clients.computeIfPresent(key, (k, e) -> {
+                if (now - e.lastUsed > IDLE_TIMEOUT_MILLIS) {
+                    idle[0] = e;
+                    return null;
+                }
+                return e;
+            });
+            if (idle[0] != null) {
+                close(idle[0]);
+            }
+        }
+    }
+
+    void closeAll() {
+        Iterator<Entry> it = clients.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            it.remove();
+            close(entry);
+        }
+    }
+
+    int size() {
+        return clients.size();
+    }
+
+    private static void close(Entry entry) {
+        LOGGER.log(Level.FINE, "Closing STS client of {0}", entry.owner);
+        try {
+            entry.client.close();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.FINE, "Failed to close STS client", e);
+        }
+    }
+
+    @Terminator
+    public static void shutdown() {
+        INSTANCE.closeAll();
+    }
+
+    /**
+     * Closes the clients that have not been used for a while.
+     */
+    @Extension
+    public static class IdleClientsCleaner extends PeriodicWork {
+
+        @Override
+        public long getRecurrencePeriod() {
+            return MIN;
+        }
+
+        @Override
+        protected void doRun() {
+            get().closeIdle(System.currentTimeMillis());
+        }
+    }
+
+    private static final class Key {
+        private final String identity;
+        private final String location;
+        private final String settings;
+        private final SdkHttpClient httpClient;
+
+        /**
+         * @param location the region or regions and endpoints the client talks to.
+         */
+        Key(String identity, String location, String settings, SdkHttpClient httpClient) {
+            this.identity = identity;
+            this.location = location;
+            this.settings = settings;
+            this.httpClient = httpClient;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            // the HTTP client changes along with the proxy settings
+            return identity.equals(key.identity)
+                    && location.equals(key.location)
+                    && settings.equals(key.settings)
+                    && httpClient == key.httpClient;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(identity, location, settings, System.identityHashCode(httpClient));
+        }
+    }
+
+    private static final class Entry {
+        private final String owner;
+        private final String ownerFingerprint;
+        private final StsClient client;
+        private volatile long lastUsed;
+
+        Entry(String owner, String ownerFingerprint, StsClient client) {
+            this.owner = owner;
+            this.ownerFingerprint = ownerFingerprint;
+            this.client = client;
+            this.lastUsed = System.currentTimeMillis();
+        }
+    }
+}
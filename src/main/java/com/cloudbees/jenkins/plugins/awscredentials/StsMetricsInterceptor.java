@@ -0,0 +1,135 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2026, CloudBees, Inc.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.utils.IoUtils;
+
+/**
+ * Records the latency and failures of the calls made by the STS clients of this plugin in {@link CredentialsMetrics}.
+ *
+ * Throttling is counted per attempt, including the attempts that the SDK retried successfully, and the throttled
+ * attempts of a call are kept in {@link #THROTTLED_ATTEMPTS} for the other interceptors.
+ */
+final class StsMetricsInterceptor implements ExecutionInterceptor {
+
+    static final StsMetricsInterceptor INSTANCE = new StsMetricsInterceptor();
+
+    private static final ExecutionAttribute<Long> START = new ExecutionAttribute<>("AwsCredentialsMetricsStart");
+
+    /**
+     * How many attempts of the call STS throttled so far.
+     */
+    static final ExecutionAttribute<Integer> THROTTLED_ATTEMPTS =
+            new ExecutionAttribute<>("AwsCredentialsThrottledAttempts");
+
+    /**
+     * Error codes STS and the AWS query protocol use for throttling.
+     */
+    private static final Set<String> THROTTLING_CODES =
+            Set.of("Throttling", "ThrottlingException", "RequestLimitExceeded", "TooManyRequestsException");
+
+    private static final Pattern ERROR_CODE = Pattern.compile("<Code>([^<]*)</Code>");
+
+    private StsMetricsInterceptor() {}
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+        executionAttributes.putAttribute(START, System.nanoTime());
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        record(executionAttributes);
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        record(executionAttributes);
+        CredentialsMetrics.STS_FAILURES.increment();
+    }
+
+    /**
+     * Called for every attempt, before the SDK unmarshalls the response and decides whether to retry.
+     */
+    @Override
+    public Optional<InputStream> modifyHttpResponseContent(
+            Context.ModifyHttpResponse context, ExecutionAttributes executionAttributes) {
+        Optional<InputStream> body = context.responseBody();
+        int status = context.httpResponse().statusCode();
+        if (status < 400 || !body.isPresent()) {
+            return body;
+        }
+        // error responses are small, buffer them to read the error code and hand them on to the SDK
+        byte[] bytes;
+        try {
+            bytes = IoUtils.toByteArray(body.get());
+        } catch (IOException e) {
+            throw SdkClientException.create("Failed to read the response of STS", e);
+        }
+        Matcher m = ERROR_CODE.matcher(new String(bytes, StandardCharsets.UTF_8));
+        if (status == 429 || m.find() && THROTTLING_CODES.contains(m.group(1))) {
+            CredentialsMetrics.STS_THROTTLES.increment();
+            Integer throttled = executionAttributes.getAttribute(THROTTLED_ATTEMPTS);
+            executionAttributes.putAttribute(THROTTLED_ATTEMPTS, throttled == null ? 1 : throttled + 1);
+        }
+        return Optional.of(new ByteArrayInputStream(bytes));
+    }
+
+    private static void record(ExecutionAttributes executionAttributes) {
+        Long start = executionAttributes.getAttribute(START);
+        if (start == null) {
+            return;
+        }
+        String operation = executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+        CredentialsMetrics.Timer timer;
+        if ("AssumeRole".equals(operation)) {
+            timer = CredentialsMetrics.STS_ASSUME_ROLE;
+        } else if ("GetSessionToken".equals(operation)) {
+            timer = CredentialsMetrics.STS_GET_SESSION_TOKEN;
+        } else if ("GetCallerIdentity".equals(operation)) {
+            timer = CredentialsMetrics.STS_GET_CALLER_IDENTITY;
+        } else {
+            return;
+        }
+        // leave out the time spent waiting for the rate limit
+        Long waitNanos = executionAttributes.getAttribute(StsRateLimiter.WAIT_NANOS);
+        timer.stop(waitNanos != null ? start + waitNanos : start);
+    }
+}
@@ -0,0 +1,560 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2026, CloudBees, Inc.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import software.amazon.awssdk.auth.credentials.AwsCredentials;
+import software.amazon.awssdk.auth.signer.AwsSignerExecutionAttribute;
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+
+/**
+ * Token buckets pacing the STS calls of this plugin, one per endpoint and source of the calls, so that builds stay
+ * under the request quotas of STS instead of being throttled. STS counts the calls against the account calling it, so
+ * the source is the account of the base credentials of the client when the SDK knows it, as for role sessions and
+ * instance profiles. The account of long-term keys is looked up once with {@code GetCallerIdentity}, and only when
+ * {@link AWSCredentialsConfiguration#getStsRateLimits() overrides} name an account: until it is known, and when none
+ * do, the source is the keys themselves.
+ *
+ * Each attempt of a call, retries included, waits for its turn, in the order they arrived, rather than fail. The time
+ * they wait is recorded in {@link CredentialsMetrics#STS_RATE_LIMIT_WAIT}, and left out of the latency of the call.
+ *
+ * The rate of a bucket is {@link AWSCredentialsConfiguration#getStsRateLimit()} unless
+ * {@link AWSCredentialsConfiguration#getStsRateLimits() overridden} for its account or region. When STS throttles an
+ * attempt anyway, e.g. because other clients share the quota, the bucket halves its rate and pauses for a random part
+ * of a second, then gets back to the configured rate step by step while calls succeed.
+ */
+final class StsRateLimiter {
+
+    private static final Logger LOGGER = Logger.getLogger(StsRateLimiter.class.getName());
+
+    private static final ConcurrentMap<String, StsRateLimiter> LIMITERS = new ConcurrentHashMap<>();
+
+    private static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final Pattern ACCOUNT = Pattern.compile("\\d{12}");
+
+    /**
+     * How long to wait before looking the account of long-term keys up again after it failed.
+     */
+    private static final long ACCOUNT_RETRY_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    /**
+     * The accounts of long-term keys, by what identifies the keys.
+     */
+    private static final ConcurrentMap<String, Account> ACCOUNTS = new ConcurrentHashMap<>();
+
+    /**
+     * How long the attempts of a call waited for their turn so far, in nanoseconds.
+     */
+    static final ExecutionAttribute<Long> WAIT_NANOS = new ExecutionAttribute<>("AwsCredentialsRateLimitWait");
+
+    /**
+     * How long the calls of each thread waited for their turn in total, in nanoseconds, for callers outside of the
+     * SDK. Synchronous clients make their calls on the calling thread.
+     */
+    private static final ThreadLocal<long[]> WAITED_NANOS = ThreadLocal.withInitial(() -> new long[1]);
+
+    /**
+     * One line of {@link AWSCredentialsConfiguration#getStsRateLimits()}: {@code [account][@region] = rate[/burst]},
+     * with {@code *} matching any account and region.
+     */
+    private static final Pattern RULE =
+            Pattern.compile("(\\*|\\d{12})?(?:@([a-z0-9-]+))?\\s*=\\s*(\\d+(?:\\.\\d+)?)(?:\\s*/\\s*(\\d+))?");
+
+    /**
+     * The last parsed overrides, as they are looked up on every call.
+     */
+    @CheckForNull
+    private static volatile Rules rules;
+
+    private final String name;
+
+    private final String account;
+
+    private final String region;
+
+    /**
+     * Configured calls per second, {@code 0} for no limit. Guarded by {@code this}, as are the fields below.
+     */
+    private double limit;
+
+    /**
+     * Calls per second allowed right now, lowered when STS throttles calls.
+     */
+    private double rate;
+
+    private double burst;
+
+    /**
+     * Calls that may go through without waiting. Full until the first call sets {@link #burst}.
+     */
+    private double stored = Double.POSITIVE_INFINITY;
+
+    /**
+     * When the next call may go through, once {@link #stored} calls are used.
+     */
+    private long nextFree;
+
+    private long lastDecrease;
+
+    private long lastIncrease;
+
+    StsRateLimiter(@NonNull String name, @NonNull String account, @NonNull String region) {
+        this.name = name;
+        this.account = account;
+        this.region = region;
+        long now = System.nanoTime();
+        nextFree = now;
+        lastDecrease = now - SECOND_NANOS;
+        lastIncrease = now;
+    }
+
+    /**
+     * @param endpoint identifies the endpoint of the client, its region optionally followed by {@code =} and its URL.
+     * @param source the account calling STS, or what identifies the base credentials of the client when it is not
+     *     known.
+     */
+    @NonNull
+    static StsRateLimiter get(@NonNull String endpoint, @NonNull String source) {
+        return LIMITERS.computeIfAbsent(endpoint + "|" + source, name -> {
+            int eq = endpoint.indexOf('=');
+            String account = ACCOUNT.matcher(source).matches() ? source : "";
+            return new StsRateLimiter(name, account, eq < 0 ? endpoint : endpoint.substring(0, eq));
+        });
+    }
+
+    /**
+     * How long the calls of the current thread waited for their turn so far, in nanoseconds.
+     *
+     * @see #WAIT_NANOS
+     */
+    static long waitedNanos() {
+        return WAITED_NANOS.get()[0];
+    }
+
+    static void reset() {
+        LIMITERS.clear();
+        ACCOUNTS.clear();
+    }
+
+    /**
+     * The account long-term keys belong to, looked up in the background the first time it is needed.
+     *
+     * @param identity identifies the keys.
+     * @param lookup calls {@code GetCallerIdentity} with the keys.
+     * @return the account, or {@code null} while it is not known or not needed as no override names an account.
+     */
+    @CheckForNull
+    static String account(@NonNull String identity, @NonNull Callable<String> lookup) {
+        Account known = ACCOUNTS.get(identity);
+        if (known != null && known.account != null) {
+            return known.account;
+        }
+        AWSCredentialsConfiguration config = AWSCredentialsConfiguration.get();
+        if (config == null || !namesAccounts(config.getStsRateLimits())) {
+            return null;
+        }
+        long now = System.nanoTime();
+        Account pending = new Account(null, now, true);
+        boolean lookUp;
+        if (known == null) {
+            lookUp = ACCOUNTS.putIfAbsent(identity, pending) == null;
+        } else {
+            // one lookup at a time, and not again right after it failed
+            lookUp = !known.pending
+                    && now - known.since >= ACCOUNT_RETRY_NANOS
+                    && ACCOUNTS.replace(identity, known, pending);
+        }
+        if (lookUp) {
+            try {
+                StsBackgroundCalls.EXECUTOR.execute(() -> {
+                    try {
+                        ACCOUNTS.put(identity, new Account(lookup.call(), System.nanoTime(), false));
+                    } catch (Exception e) {
+                        LOGGER.log(Level.FINE, "Could not look up the account of the keys calling STS", e);
+                        ACCOUNTS.put(identity, new Account(null, System.nanoTime(), false));
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // try again later
+                ACCOUNTS.put(identity, new Account(null, now, false));
+            }
+        }
+        return null;
+    }
+
+    private static boolean namesAccounts(@CheckForNull String spec) {
+        for (Rule rule : rules(spec)) {
+            if (rule.account != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Waits until a call may go through.
+     *
+     * @return how long it waited, in nanoseconds.
+     * @throws AbortedException if interrupted meanwhile.
+     */
+    long acquire() {
+        long waitNanos = reserve(System.nanoTime(), rule());
+        CredentialsMetrics.STS_RATE_LIMIT_WAIT.record(waitNanos);
+        if (waitNanos <= 0) {
+            return 0;
+        }
+        LOGGER.log(Level.FINE, "Waiting {0} ms to call STS for {1}", new Object[] {
+            TimeUnit.NANOSECONDS.toMillis(waitNanos), name
+        });
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw AbortedException.create("Interrupted while waiting to call STS for " + name, e);
+        }
+        return waitNanos;
+    }
+
+    /**
+     * Takes the next free slot.
+     *
+     * @return how long the caller must wait for it, in nanoseconds.
+     */
+    synchronized long reserve(long now, @NonNull Rule rule) {
+        if (rule.rate != limit) {
+            limit = rule.rate;
+            rate = rule.rate;
+        }
+        burst = rule.burst;
+        if (limit <= 0) {
+            return 0;
+        }
+        double interval = SECOND_NANOS / rate;
+        if (now - nextFree > 0) {
+            stored = Math.min(burst, stored + (now - nextFree) / interval);
+            nextFree = now;
+        } else {
+            stored = Math.min(burst, stored);
+        }
+        long waitNanos = Math.max(0, nextFree - now);
+        if (stored >= 1) {
+            stored--;
+        } else {
+            nextFree += (long) interval;
+        }
+        return waitNanos;
+    }
+
+    /**
+     * Slows down after STS throttled a call, once per second at most as the calls in flight get throttled together.
+     */
+    synchronized void throttled(long now) {
+        if (limit <= 0 || now - lastDecrease < SECOND_NANOS) {
+            return;
+        }
+        lastDecrease = now;
+        lastIncrease = now;
+        rate = Math.max(limit / 64, rate / 2);
+        stored = 0;
+        // the jitter keeps the callers, and other Jenkins controllers, from coming back all at once
+        long pause = (long) (SECOND_NANOS / rate * ThreadLocalRandom.current().nextDouble(1, 2));
+        nextFree = Math.max(nextFree, now) + pause;
+        LOGGER.log(Level.FINE, "STS throttled calls for {0}, slowing down to {1} calls per second", new Object[] {
+            name, rate
+        });
+    }
+
+    /**
+     * Speeds up again, by a tenth of the configured rate per second.
+     */
+    synchronized void succeeded(long now) {
+        if (rate < limit && now - lastIncrease >= SECOND_NANOS) {
+            lastIncrease = now;
+            rate = Math.min(limit, rate + limit / 10);
+        }
+    }
+
+    synchronized double getRate() {
+        return rate;
+    }
+
+    @NonNull
+    private Rule rule() {
+        AWSCredentialsConfiguration config = AWSCredentialsConfiguration.get();
+        int rate = config != null ? config.getStsRateLimit() : AWSCredentialsConfiguration.DEFAULT_STS_RATE_LIMIT;
+        Rule best = new Rule(null, null, rate, Math.max(1, rate));
+        int bestScore = -1;
+        for (Rule rule : rules(config != null ? config.getStsRateLimits() : null)) {
+            int score = rule.score(account, region);
+            if (score > bestScore) {
+                best = rule;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    @NonNull
+    private static List<Rule> rules(@CheckForNull String spec) {
+        if (spec == null) {
+            return Collections.emptyList();
+        }
+        Rules parsed = rules;
+        if (parsed == null || !parsed.spec.equals(spec)) {
+            List<Rule> list;
+            try {
+                list = parse(spec);
+            } catch (IllegalArgumentException e) {
+                // only the configuration form checks them
+                LOGGER.log(Level.WARNING, "Ignoring the STS rate limits, malformed line: {0}", e.getMessage());
+                list = Collections.emptyList();
+            }
+            parsed = new Rules(spec, list);
+            rules = parsed;
+        }
+        return parsed.rules;
+    }
+
+    /**
+     * Parses rate limits overrides, one per line.
+     *
+     * @throws IllegalArgumentException on a malformed line.
+     */
+    @NonNull
+    static List<Rule> parse(@CheckForNull String spec) {
+        List<Rule> result = new ArrayList<>();
+        if (spec == null) {
+            return result;
+        }
+        for (String line : spec.split("\\R")) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            Matcher m = RULE.matcher(line);
+            if (!m.matches() || (m.group(1) == null && m.group(2) == null)) {
+                throw new IllegalArgumentException(line);
+            }
+            String account = "*".equals(m.group(1)) ? null : m.group(1);
+            double rate = Double.parseDouble(m.group(3));
+            double burst = m.group(4) != null ? Integer.parseInt(m.group(4)) : Math.max(1, rate);
+            result.add(new Rule(account, m.group(2), rate, burst));
+        }
+        return result;
+    }
+
+    /**
+     * Rate limit of the calls for an account, a region or both.
+     */
+    static final class Rule {
+        @CheckForNull
+        private final String account;
+
+        @CheckForNull
+        private final String region;
+
+        private final double rate;
+
+        private final double burst;
+
+        /**
+         * @param rate calls per second, {@code 0} for no limit.
+         * @param burst how many calls may go through at once after a quiet period.
+         */
+        Rule(@CheckForNull String account, @CheckForNull String region, double rate, double burst) {
+            this.account = account;
+            this.region = region;
+            this.rate = rate;
+            this.burst = burst;
+        }
+
+        /**
+         * How specifically the rule matches, {@code -1} if it does not.
+         */
+        int score(@NonNull String account, @NonNull String region) {
+            if (this.account != null && !this.account.equals(account)
+                    || this.region != null && !this.region.equals(region)) {
+                return -1;
+            }
+            return (this.account != null ? 2 : 0) + (this.region != null ? 1 : 0);
+        }
+    }
+
+    /**
+     * The account of long-term keys: known, being looked up, or failed to.
+     */
+    private static final class Account {
+        @CheckForNull
+        private final String account;
+
+        private final long since;
+
+        private final boolean pending;
+
+        Account(@CheckForNull String account, long since, boolean pending) {
+            this.account = account;
+            this.since = since;
+            this.pending = pending;
+        }
+    }
+
+    private static final class Rules {
+        private final String spec;
+        private final List<Rule> rules;
+
+        Rules(String spec, List<Rule> rules) {
+            this.spec = spec;
+            this.rules = rules;
+        }
+    }
+
+    /**
+     * Paces every attempt of the calls of an STS client with the limiter of their endpoint and source, and slows it
+     * down as soon as STS throttles an attempt, including the attempts the SDK then retries successfully.
+     */
+    static final class Interceptor implements ExecutionInterceptor {
+        private static final ExecutionAttribute<StsRateLimiter> LIMITER =
+                new ExecutionAttribute<>("AwsCredentialsRateLimiter");
+
+        /**
+         * Whether the first attempt already waited for its turn.
+         */
+        private static final ExecutionAttribute<Boolean> FIRST_ATTEMPT_PACED =
+                new ExecutionAttribute<>("AwsCredentialsRateLimiterFirstAttemptPaced");
+
+        /**
+         * How many throttled attempts the limiter was told about.
+         */
+        private static final ExecutionAttribute<Integer> THROTTLES_SEEN =
+                new ExecutionAttribute<>("AwsCredentialsRateLimiterThrottlesSeen");
+
+        private final String endpoint;
+
+        private final String identity;
+
+        /**
+         * @param endpoint identifies the endpoint of the client.
+         * @param identity identifies the base credentials of the client, for when their account is not known.
+         */
+        Interceptor(@NonNull String endpoint, @NonNull String identity) {
+            this.endpoint = endpoint;
+            this.identity = identity;
+        }
+
+        @Override
+        public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+            StsRateLimiter limiter = get(endpoint, source(executionAttributes));
+            executionAttributes.putAttribute(LIMITER, limiter);
+            // before the call timeout starts, so that waiting for a turn does not fail the call
+            acquire(limiter, executionAttributes);
+            executionAttributes.putAttribute(FIRST_ATTEMPT_PACED, true);
+        }
+
+        @Override
+        public void beforeTransmission(Context.BeforeTransmission context, ExecutionAttributes executionAttributes) {
+            StsRateLimiter limiter = executionAttributes.getAttribute(LIMITER);
+            if (limiter == null) {
+                return;
+            }
+            observeThrottles(limiter, executionAttributes);
+            if (Boolean.TRUE.equals(executionAttributes.getAttribute(FIRST_ATTEMPT_PACED))) {
+                executionAttributes.putAttribute(FIRST_ATTEMPT_PACED, false);
+            } else {
+                // a retry
+                acquire(limiter, executionAttributes);
+            }
+        }
+
+        @Override
+        public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+            StsRateLimiter limiter = executionAttributes.getAttribute(LIMITER);
+            if (limiter != null) {
+                observeThrottles(limiter, executionAttributes);
+                limiter.succeeded(System.nanoTime());
+            }
+        }
+
+        @Override
+        public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+            StsRateLimiter limiter = executionAttributes.getAttribute(LIMITER);
+            if (limiter != null) {
+                observeThrottles(limiter, executionAttributes);
+            }
+        }
+
+        /**
+         * The account of the credentials the SDK resolved for the call, if known.
+         */
+        @SuppressWarnings("deprecation")
+        private String source(ExecutionAttributes executionAttributes) {
+            AwsCredentials credentials;
+            try {
+                credentials = executionAttributes.getAttribute(AwsSignerExecutionAttribute.AWS_CREDENTIALS);
+            } catch (RuntimeException e) {
+                // the SDK reports it when signing
+                return identity;
+            }
+            return credentials != null ? credentials.accountId().orElse(identity) : identity;
+        }
+
+        private static void acquire(StsRateLimiter limiter, ExecutionAttributes executionAttributes) {
+            long waitNanos = limiter.acquire();
+            WAITED_NANOS.get()[0] += waitNanos;
+            Long total = executionAttributes.getAttribute(WAIT_NANOS);
+            executionAttributes.putAttribute(WAIT_NANOS, (total != null ? total : 0) + waitNanos);
+        }
+
+        /**
+         * Tells the limiter about the attempts {@link StsMetricsInterceptor} found throttled since last time.
+         */
+        private static void observeThrottles(StsRateLimiter limiter, ExecutionAttributes executionAttributes) {
+            Integer throttled = executionAttributes.getAttribute(StsMetricsInterceptor.THROTTLED_ATTEMPTS);
+            if (throttled != null && !throttled.equals(executionAttributes.getAttribute(THROTTLES_SEEN))) {
+                executionAttributes.putAttribute(THROTTLES_SEEN, throttled);
+                limiter.throttled(System.nanoTime());
+            }
+        }
+    }
+}
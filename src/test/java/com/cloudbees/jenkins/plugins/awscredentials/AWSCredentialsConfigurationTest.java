@@ -0,0 +1,62 @@
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import hudson.XmlFile;
+import hudson.model.Descriptor;
+import hudson.model.Saveable;
+import hudson.model.listeners.SaveableListener;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.sf.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestExtension;
+
+public class AWSCredentialsConfigurationTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Test
+    public void savesTheFormOnce() throws Exception {
+        AWSCredentialsConfiguration config = AWSCredentialsConfiguration.get();
+        config.setStsRateLimit(10);
+        config.setStsRateLimits("123456789012 = 100");
+        config.setSessionCacheSize(10);
+        assertEquals(0, Saves.COUNT.get());
+
+        j.configRoundtrip();
+        assertEquals(1, Saves.COUNT.get());
+        assertEquals(10, config.getStsRateLimit());
+        assertEquals("123456789012 = 100", config.getStsRateLimits());
+        assertEquals(10, config.getSessionCacheSize());
+    }
+
+    @Test
+    public void rejectsMalformedSettingsWithoutChangingThem() {
+        AWSCredentialsConfiguration config = AWSCredentialsConfiguration.get();
+        config.setStsRateLimits("123456789012 = 100");
+        JSONObject json = new JSONObject().element("stsRateLimits", "fast").element("stsRateLimit", 1);
+        Descriptor.FormException e = assertThrows(Descriptor.FormException.class, () -> config.configure(null, json));
+        assertEquals("stsRateLimits", e.getFormField());
+        assertEquals("123456789012 = 100", config.getStsRateLimits());
+
+        json.element("stsRateLimits", "").element("stsRegions", "eu-west-1=sts.example.com");
+        e = assertThrows(Descriptor.FormException.class, () -> config.configure(null, json));
+        assertEquals("stsRegions", e.getFormField());
+    }
+
+    @TestExtension("savesTheFormOnce")
+    public static class Saves extends SaveableListener {
+        static final AtomicInteger COUNT = new AtomicInteger();
+
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof AWSCredentialsConfiguration) {
+                COUNT.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+import com.cloudbees.hudson.plugins.folder.Folder;
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.CredentialsStore;
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+import com.cloudbees.plugins.credentials.domains.Domain;
+import hudson.slaves.DumbSlave;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import jenkins.security.MasterToSlaveCallable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import software.amazon.awssdk.auth.credentials.AwsCredentials;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+public class AWSCredentialsSnapshotTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Rule
+    public StsStub sts = new StsStub();
+
+    private AWSCredentialsImpl credentials;
+
+    @Before
+    public void setUp() {
+        AWSCredentialsConfiguration.get().setRegion("us-east-1");
+        credentials = new AWSCredentialsImpl(
+                CredentialsScope.GLOBAL,
+                "role",
+                "AKIAEXAMPLE",
+                "longTermSecret",
+                "",
+                "arn:aws:iam::123456789012:role/test",
+                null,
+                null);
+        StsClientRegistry.ENDPOINT = sts.getEndpoint();
+    }
+
+    @After
+    public void tearDown() {
+        StsClientRegistry.ENDPOINT = null;
+        StsClientRegistry.get().closeAll();
+        SessionCredentialsCache.get().clear();
+        AWSCredentialsSnapshot.clear();
+    }
+
+    @Test
+    public void sendsSessionInsteadOfKeys() throws Exception {
+        AWSCredentialsImpl snapshot = new AWSCredentialsSnapshot.SnapshotTaker().snapshot(credentials);
+        assertEquals(1, sts.getRequests());
+
+        byte[] serialized = serialize(snapshot);
+        String content = new String(serialized, StandardCharsets.ISO_8859_1);
+        assertFalse(content.contains("AKIAEXAMPLE"));
+        assertFalse(content.contains("longTermSecret"));
+
+        AWSCredentialsImpl onAgent = deserialize(serialized);
+        AwsCredentials session = onAgent.resolveCredentials();
+        assertEquals(credentials.resolveCredentials(), session);
+        assertEquals(1, sts.getRequests());
+        assertEquals("role", onAgent.getId());
+    }
+
+    @Test
+    public void renewsExpiringSessionOnController() throws Exception {
+        // sessions are always too close to their expiry, from the time the snapshot is taken
+        AWSCredentialsConfiguration.get().setSessionExpiryMarginSeconds(3600);
+        AWSCredentialsImpl onAgent =
+                deserialize(serialize(new AWSCredentialsSnapshot.SnapshotTaker().snapshot(credentials)));
+        assertEquals(1, sts.getRequests());
+        onAgent.resolveCredentials();
+        assertEquals(2, sts.getRequests());
+    }
+
+    @Test
+    public void renewsExpiringSessionOfAnAgentOnController() throws Exception {
+        AWSCredentialsConfiguration.get().setSessionExpiryMarginSeconds(3600);
+        DumbSlave agent = j.createOnlineSlave();
+        AWSCredentialsImpl snapshot = new AWSCredentialsSnapshot.SnapshotTaker().snapshot(credentials);
+        assertEquals(1, sts.getRequests());
+        // the agent asks the controller, which assumes the role again
+        assertEquals("token2", agent.getChannel().call(new ResolveOnAgent(snapshot)));
+        assertEquals(2, sts.getRequests());
+    }
+
+    private static final class ResolveOnAgent extends MasterToSlaveCallable<String, RuntimeException> {
+        private final AWSCredentialsImpl credentials;
+
+        ResolveOnAgent(AWSCredentialsImpl credentials) {
+            this.credentials = credentials;
+        }
+
+        @Override
+        public String call() {
+            return ((AwsSessionCredentials) credentials.resolveCredentials()).sessionToken();
+        }
+    }
+
+    @Test
+    public void forgetsSnapshotsOfUpdatedCredentials() throws Exception {
+        AWSCredentialsConfiguration.get().setSessionExpiryMarginSeconds(3600);
+        AWSCredentialsImpl onAgent =
+                deserialize(serialize(new AWSCredentialsSnapshot.SnapshotTaker().snapshot(credentials)));
+        AWSCredentialsSnapshot.evict(Collections.singleton(credentials.fingerprint()));
+        assertThrows(SdkClientException.class, onAgent::resolveCredentials);
+    }
+
+    @Test
+    public void renewsSnapshotsOfFolderCredentialsAfterSavesOfOtherStores() throws Exception {
+        AWSCredentialsConfiguration.get().setSessionExpiryMarginSeconds(3600);
+        Folder folder = j.jenkins.createProject(Folder.class, "folder");
+        CredentialsStore store = null;
+        for (CredentialsStore s : CredentialsProvider.lookupStores(folder)) {
+            if (s.getContext() == folder) {
+                store = s;
+            }
+        }
+        store.addCredentials(Domain.global(), credentials);
+        AWSCredentialsImpl onAgent =
+                deserialize(serialize(new AWSCredentialsSnapshot.SnapshotTaker().snapshot(credentials)));
+
+        SystemCredentialsProvider.getInstance().save();
+        onAgent.resolveCredentials();
+        assertEquals(2, sts.getRequests());
+
+        store.removeCredentials(Domain.global(), credentials);
+        assertThrows(SdkClientException.class, onAgent::resolveCredentials);
+    }
+
+    @Test
+    public void sharesTheNonceOfSnapshotsOfTheSameCredentials() {
+        AWSCredentialsSnapshot.SnapshotTaker taker = new AWSCredentialsSnapshot.SnapshotTaker();
+        for (int i = 0; i < 10; i++) {
+            taker.snapshot(credentials);
+        }
+        assertEquals(1, AWSCredentialsSnapshot.size());
+    }
+
+    @Test
+    public void keepsCredentialsWithoutRole() {
+        AWSCredentialsImpl keys =
+                new AWSCredentialsImpl(CredentialsScope.GLOBAL, "keys", "AKIAEXAMPLE", "longTermSecret", "");
+        assertSame(keys, new AWSCredentialsSnapshot.SnapshotTaker().snapshot(keys));
+    }
+
+    @Test
+    public void keepsCredentialsWhenStsRefusesTheRole() {
+        sts.failWith(403, "AccessDenied");
+        assertSame(credentials, new AWSCredentialsSnapshot.SnapshotTaker().snapshot(credentials));
+        assertEquals(1, sts.getRequests());
+    }
+
+    private static byte[] serialize(Object o) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(o);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static AWSCredentialsImpl deserialize(byte[] serialized) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            return (AWSCredentialsImpl) in.readObject();
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.auth.AWSCredentials;
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+import hudson.AbortException;
+import hudson.FilePath;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.slaves.DumbSlave;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import jenkins.security.MasterToSlaveCallable;
+import net.sf.json.JSONObject;
+import org.jenkinsci.plugins.credentialsbinding.impl.SecretBuildWrapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+import software.amazon.awssdk.auth.credentials.ContainerCredentialsProvider;
+
+public class AmazonWebServicesCredentialsBindingTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Rule
+    public StsStub sts = new StsStub();
+
+    @Before
+    public void setUp() {
+        AWSCredentialsConfiguration.get().setRegion("us-east-1");
+        StsClientRegistry.ENDPOINT = sts.getEndpoint();
+    }
+
+    @After
+    public void tearDown() {
+        AWSCredentialsConfiguration config = AWSCredentialsConfiguration.get();
+        config.setSessionRefreshAhead(false);
+        config.setSessionExpiryMarginSeconds(AWSCredentialsConfiguration.DEFAULT_SESSION_EXPIRY_MARGIN_SECONDS);
+        StsClientRegistry.ENDPOINT = null;
+        StsClientRegistry.get().closeAll();
+        SessionCredentialsCache.get().clear();
+        CredentialsEndpoint.RETRY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    }
+
+    @Test
+    public void refusesToServeCredentialsWithoutKeysNorRole() throws Exception {
+        AmazonWebServicesCredentialsBinding binding = new AmazonWebServicesCredentialsBinding(null, null, "keyless");
+        binding.setCredentialsEndpoint(true);
+        AWSCredentialsImpl keyless = new AWSCredentialsImpl(CredentialsScope.GLOBAL, "keyless", "", "", "");
+        AbortException e = assertThrows(AbortException.class, () -> binding.toServe(keyless));
+        assertEquals(Messages.AmazonWebServicesCredentialsBinding_EndpointRequiresKeys("keyless"), e.getMessage());
+    }
+
+    @Test
+    public void servesASessionInsteadOfLongTermKeys() throws Exception {
+        AmazonWebServicesCredentialsBinding binding = new AmazonWebServicesCredentialsBinding(null, null, "keys");
+        binding.setCredentialsEndpoint(true);
+        AWSCredentialsImpl keys = new AWSCredentialsImpl(CredentialsScope.GLOBAL, "keys", "AKIAEXAMPLE", "secret", "");
+        AwsSessionCredentials session = binding.toServe(keys);
+        assertEquals("ASIASTUB1", session.accessKeyId());
+        assertEquals("token1", session.sessionToken());
+        assertTrue(session.expirationTime().isPresent());
+        // shared by the bindings of the keys
+        assertEquals(session, binding.toServe(keys));
+        assertEquals(Collections.singletonList("GetSessionToken"), sts.getActions());
+    }
+
+    @Test
+    public void tellsTheBuildWhenTheSessionOfAChainedRoleIsShortened() throws Exception {
+        AWSCredentialsImpl role = new AWSCredentialsImpl(
+                CredentialsScope.GLOBAL,
+                "role",
+                "AKIAEXAMPLE",
+                "secret",
+                "",
+                "arn:aws:iam::123456789012:role/base",
+                null,
+                null);
+        SystemCredentialsProvider.getInstance().getCredentials().add(role);
+        AmazonWebServicesCredentialsBinding binding = new AmazonWebServicesCredentialsBinding(null, null, "role");
+        binding.setRoleArn("arn:aws:iam::123456789012:role/deploy");
+        binding.setRoleSessionDurationSeconds(7200);
+        FreeStyleProject project = j.createFreeStyleProject();
+        project.getBuildWrappersList().add(new SecretBuildWrapper(Collections.singletonList(binding)));
+        FreeStyleBuild build = j.buildAndAssertSuccess(project);
+        j.assertLogContains(
+                Messages.AmazonWebServicesCredentialsBinding_ChainedSessionDurationShortened("7200", "3600"), build);
+        assertEquals(Arrays.asList("AssumeRole", "AssumeRole"), sts.getActions());
+    }
+
+    @Test
+    public void sharesTheSessionsOfOtherTypesOfCredentialsAcrossLookups() {
+        String roleArn = "arn:aws:iam::123456789012:role/deploy";
+        // providers may hand out new objects on each lookup
+        AwsCredentialsProvider first =
+                AmazonWebServicesCredentialsBinding.assumeRoleProvider(new OtherCredentials(), roleArn, null, 0);
+        AwsCredentialsProvider second =
+                AmazonWebServicesCredentialsBinding.assumeRoleProvider(new OtherCredentials(), roleArn, null, 0);
+        assertEquals(first.resolveCredentials(), second.resolveCredentials());
+        assertEquals(Collections.singletonList("AssumeRole"), sts.getActions());
+    }
+
+    private static final class OtherCredentials extends BaseAmazonWebServicesCredentials {
+        OtherCredentials() {
+            super(CredentialsScope.GLOBAL, "other", "");
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "other";
+        }
+
+        @Override
+        public AwsCredentials resolveCredentials() {
+            return AwsBasicCredentials.create("AKIAOTHER", "secret");
+        }
+
+        @Override
+        public AwsCredentials resolveCredentials(String mfaToken) {
+            return resolveCredentials();
+        }
+
+        @Override
+        public AWSCredentials getCredentials(String mfaToken) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public AWSCredentials getCredentials() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void refresh() {}
+    }
+
+    @Test
+    public void resumesTheRenewalsOfTheEndpointAfterARestart() throws Exception {
+        Instant expiration = Instant.now().plus(1, ChronoUnit.HOURS);
+        AwsSessionCredentials first = session("1", expiration);
+        CredentialsEndpoint endpoint = CredentialsEndpoint.start(FilePath.localChannel, first, () -> first);
+        try {
+            assertEquals("", endpoint.getNode());
+            // the controller restarts and forgets about the endpoint, which keeps running on the agent
+            CredentialsEndpoint.stop(endpoint.getId(), null);
+            AwsSessionCredentials second = session("2", expiration);
+            CredentialsEndpoint.resume(endpoint.getId(), "", () -> second);
+            System.setProperty("aws.containerCredentialsFullUri", endpoint.getUri());
+            System.setProperty("aws.containerAuthorizationToken", endpoint.getToken());
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (!"token2".equals(fetch().sessionToken())) {
+                assertTrue(System.currentTimeMillis() < deadline);
+                Thread.sleep(100);
+            }
+        } finally {
+            System.clearProperty("aws.containerCredentialsFullUri");
+            System.clearProperty("aws.containerAuthorizationToken");
+            CredentialsEndpoint.stop(endpoint.getId(), FilePath.localChannel);
+        }
+    }
+
+    @Test
+    public void keepsRenewingTheEndpointWhileTheAgentReconnects() throws Exception {
+        CredentialsEndpoint.RETRY_MILLIS = 100;
+        DumbSlave agent = j.createOnlineSlave();
+        AtomicInteger renewals = new AtomicInteger();
+        AtomicBoolean hold = new AtomicBoolean();
+        Semaphore held = new Semaphore(0);
+        // due right away, so renewed on every retry
+        CredentialsEndpoint endpoint =
+                CredentialsEndpoint.start(agent.getChannel(), session("0", Instant.now()), () -> {
+                    if (hold.get()) {
+                        held.release();
+                        while (hold.get()) {
+                            try {
+                                Thread.sleep(10);
+                            } catch (InterruptedException e) {
+                                throw new IllegalStateException(e);
+                            }
+                        }
+                    }
+                    return session(String.valueOf(renewals.incrementAndGet()), Instant.now());
+                });
+        try {
+            agent.toComputer().disconnect(null).get();
+            int renewed = renewals.get();
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (renewals.get() < renewed + 3) {
+                assertTrue(System.currentTimeMillis() < deadline);
+                Thread.sleep(100);
+            }
+
+            // the new agent process serves the endpoint again before the next renewal reaches it
+            hold.set(true);
+            held.acquire();
+            agent.toComputer().connect(false).get();
+            int port = agent.getChannel().call(new Serve(endpoint.getId(), endpoint.getToken()));
+            hold.set(false);
+            deadline = System.currentTimeMillis() + 10_000;
+            while ("token0".equals(fetchJson(port, endpoint.getToken()).getString("Token"))) {
+                assertTrue(System.currentTimeMillis() < deadline);
+                Thread.sleep(100);
+            }
+        } finally {
+            CredentialsEndpoint.stop(endpoint.getId(), agent.getChannel());
+        }
+    }
+
+    private static JSONObject fetchJson(int port, String token) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + port + "/").openConnection();
+        connection.setRequestProperty("Authorization", token);
+        try (InputStream is = connection.getInputStream()) {
+            return JSONObject.fromObject(new String(is.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static final class Serve extends MasterToSlaveCallable<Integer, IOException> {
+        private final String id;
+        private final String token;
+
+        Serve(String id, String token) {
+            this.id = id;
+            this.token = token;
+        }
+
+        @Override
+        public Integer call() throws IOException {
+            return CredentialsEndpoint.serve(
+                    id, token, new CredentialsEndpoint.Snapshot("ASIA0", "secret0", "token0", null, null));
+        }
+    }
+
+    private static AwsSessionCredentials fetch() {
+        try (ContainerCredentialsProvider provider =
+                ContainerCredentialsProvider.builder().build()) {
+            return (AwsSessionCredentials) provider.resolveCredentials();
+        }
+    }
+
+    private static AwsSessionCredentials session(String n, Instant expiration) {
+        return AwsSessionCredentials.builder()
+                .accessKeyId("ASIA" + n)
+                .secretAccessKey("secret" + n)
+                .sessionToken("token" + n)
+                .expirationTime(expiration)
+                .build();
+    }
+
+    @Test
+    public void refreshesTheRoleSessionAfterTheClientWasClosed() throws Exception {
+        AWSCredentialsConfiguration config = AWSCredentialsConfiguration.get();
+        config.setSessionRefreshAhead(true);
+        // the sessions of the stub last an hour, so they get refreshed within a few seconds
+        config.setSessionExpiryMarginSeconds(3600 - 5);
+        AWSCredentialsImpl keys = new AWSCredentialsImpl(CredentialsScope.GLOBAL, "keys", "AKIAEXAMPLE", "secret", "");
+        AwsCredentialsProvider provider = AmazonWebServicesCredentialsBinding.assumeRoleProvider(
+                keys, "arn:aws:iam::123456789012:role/deploy", null, 0);
+        assertEquals("ASIASTUB1", provider.resolveCredentials().accessKeyId());
+
+        StsClientRegistry.get().closeIdle(System.currentTimeMillis() + StsClientRegistry.IDLE_TIMEOUT_MILLIS + 1);
+        assertEquals(0, StsClientRegistry.get().size());
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (sts.getRequests() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertEquals("ASIASTUB2", provider.resolveCredentials().accessKeyId());
+        assertEquals(2, sts.getRequests());
+    }
+}
@@ -0,0 +1,99 @@
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+import hudson.AbortException;
+import hudson.util.ListBoxModel;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import software.amazon.awssdk.auth.credentials.AwsCredentials;
+
+public class AmazonWebServicesProfilesBindingTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Rule
+    public StsStub sts = new StsStub();
+
+    private AWSCredentialsImpl credentials;
+
+    @Before
+    public void setUp() {
+        AWSCredentialsConfiguration.get().setRegion("us-east-1");
+        credentials = new AWSCredentialsImpl(CredentialsScope.GLOBAL, "keys", "AKIAEXAMPLE", "secret", "");
+        StsClientRegistry.ENDPOINT = sts.getEndpoint();
+    }
+
+    @After
+    public void tearDown() {
+        StsClientRegistry.ENDPOINT = null;
+        StsClientRegistry.get().closeAll();
+        SessionCredentialsCache.get().clear();
+    }
+
+    @Test
+    public void filtersTheCredentialsOfTheForm() throws Exception {
+        SystemCredentialsProvider store = SystemCredentialsProvider.getInstance();
+        store.getCredentials().add(credentials);
+        store.getCredentials().add(new AWSCredentialsImpl(CredentialsScope.GLOBAL, "other", "AKIAOTHER", "secret", ""));
+        store.save();
+        AmazonWebServicesProfilesBinding.Profile.DescriptorImpl descriptor =
+                j.jenkins.getDescriptorByType(AmazonWebServicesProfilesBinding.Profile.DescriptorImpl.class);
+        ListBoxModel items = descriptor.doFillCredentialsIdItems(null, null, "oth", null);
+        assertEquals(2, items.size());
+        assertEquals("other", items.get(1).value);
+        assertEquals(3, descriptor.doFillCredentialsIdItems(null, null, "", null).size());
+    }
+
+    @Test
+    public void writesOneProfilePerAccount() throws Exception {
+        AmazonWebServicesProfilesBinding.Profile production = profile("production", "111111111111");
+        production.setRegion("eu-west-1");
+        AmazonWebServicesProfilesBinding.Profile staging = profile("staging", "222222222222");
+        AmazonWebServicesProfilesBinding.Profile keys = new AmazonWebServicesProfilesBinding.Profile("default");
+        Map<AmazonWebServicesProfilesBinding.Profile, AmazonWebServicesCredentials> profiles = new LinkedHashMap<>();
+        profiles.put(production, credentials);
+        profiles.put(staging, credentials);
+        profiles.put(keys, credentials);
+
+        Map<AmazonWebServicesProfilesBinding.Profile, AwsCredentials> resolved =
+                AmazonWebServicesProfilesBinding.resolve(profiles);
+        assertEquals(2, sts.getRequests());
+
+        String file = AmazonWebServicesProfilesBinding.credentialsFile(resolved);
+        assertTrue(file, file.startsWith("[production]\naws_access_key_id = ASIA"));
+        assertTrue(file, file.contains("[staging]\naws_access_key_id = ASIA"));
+        assertTrue(file, file.contains("aws_session_token = "));
+        assertTrue(
+                file, file.contains("[default]\naws_access_key_id = AKIAEXAMPLE\naws_secret_access_key = secret\n\n"));
+        assertEquals(
+                "[profile production]\nregion = eu-west-1\n\n",
+                AmazonWebServicesProfilesBinding.configFile(Arrays.asList(production, staging, keys)));
+    }
+
+    @Test
+    public void failsWithTheProfileThatCouldNotBeResolved() {
+        sts.failWith(403, "AccessDenied");
+        Map<AmazonWebServicesProfilesBinding.Profile, AmazonWebServicesCredentials> profiles = new LinkedHashMap<>();
+        profiles.put(profile("production", "111111111111"), credentials);
+        AbortException e = assertThrows(AbortException.class, () -> AmazonWebServicesProfilesBinding.resolve(profiles));
+        assertTrue(e.getMessage(), e.getMessage().contains("\"production\""));
+    }
+
+    private static AmazonWebServicesProfilesBinding.Profile profile(String name, String account) {
+        AmazonWebServicesProfilesBinding.Profile profile = new AmazonWebServicesProfilesBinding.Profile(name);
+        profile.setRoleArn("arn:aws:iam::" + account + ":role/deploy");
+        return profile;
+    }
+}
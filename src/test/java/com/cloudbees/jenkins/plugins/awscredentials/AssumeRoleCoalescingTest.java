@@ -0,0 +1,157 @@
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+import hudson.model.FreeStyleBuild;
+import hudson.model.TaskListener;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import software.amazon.awssdk.services.sts.model.StsException;
+
+public class AssumeRoleCoalescingTest {
+
+    private static final int BINDS = 20;
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Rule
+    public StsStub sts = new StsStub();
+
+    private FreeStyleBuild build;
+
+    @Before
+    public void setUp() throws Exception {
+        AWSCredentialsConfiguration.get().setRegion("us-east-1");
+        SystemCredentialsProvider.getInstance()
+                .getCredentials()
+                .add(new AWSCredentialsImpl(
+                        CredentialsScope.GLOBAL,
+                        "role",
+                        "AKIAEXAMPLE",
+                        "secret",
+                        "",
+                        "arn:aws:iam::123456789012:role/test",
+                        null,
+                        null));
+        SystemCredentialsProvider.getInstance().save();
+        build = j.buildAndAssertSuccess(j.createFreeStyleProject());
+        sts.setLatencyMillis(500);
+        StsClientRegistry.ENDPOINT = sts.getEndpoint();
+    }
+
+    @After
+    public void tearDown() {
+        StsClientRegistry.ENDPOINT = null;
+        StsClientRegistry.get().closeAll();
+        SessionCredentialsCache.get().clear();
+    }
+
+    @Test
+    public void parallelBindsShareOneAssumeRole() throws Exception {
+        Set<String> tokens = new HashSet<>();
+        for (Future<Map<String, String>> bound : bindInParallel()) {
+            tokens.add(bound.get().get("AWS_SESSION_TOKEN"));
+        }
+        assertEquals(1, sts.getRequests());
+        assertEquals(Set.of("token1"), tokens);
+    }
+
+    @Test
+    public void parallelBindsShareOneFailure() throws Exception {
+        sts.failWith(403, "AccessDenied");
+        for (Future<Map<String, String>> bound : bindInParallel()) {
+            try {
+                bound.get();
+                fail("AssumeRole should have failed");
+            } catch (ExecutionException e) {
+                assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof StsException);
+            }
+        }
+        assertEquals(1, sts.getRequests());
+    }
+
+    @Test
+    public void bindsShareAssumedRoleAcrossBuilds() throws Exception {
+        sts.setLatencyMillis(0);
+        AmazonWebServicesCredentialsBinding binding = new AmazonWebServicesCredentialsBinding(null, null, "role");
+        binding.setRoleArn("arn:aws:iam::210987654321:role/deploy");
+        Map<String, String> first =
+                binding.bind(build, null, null, TaskListener.NULL).getValues();
+        int calls = sts.getRequests();
+
+        AmazonWebServicesCredentialsBinding other = new AmazonWebServicesCredentialsBinding(null, null, "role");
+        other.setRoleArn("arn:aws:iam::210987654321:role/deploy");
+        assertEquals(first, other.bind(build, null, null, TaskListener.NULL).getValues());
+        assertEquals(calls, sts.getRequests());
+    }
+
+    @Test
+    public void chainedBindsCacheEachHop() throws Exception {
+        sts.setLatencyMillis(0);
+        AmazonWebServicesCredentialsBinding binding = new AmazonWebServicesCredentialsBinding(null, null, "role");
+        binding.setRoleArn("arn:aws:iam::210987654321:role/deploy");
+        Map<String, String> first =
+                binding.bind(build, null, null, TaskListener.NULL).getValues();
+        // one call per hop
+        assertEquals(2, sts.getRequests());
+        assertEquals("token2", first.get("AWS_SESSION_TOKEN"));
+
+        AmazonWebServicesCredentialsBinding other = new AmazonWebServicesCredentialsBinding(null, null, "role");
+        other.setRoleArn("arn:aws:iam::210987654321:role/deploy");
+        assertEquals(first, other.bind(build, null, null, TaskListener.NULL).getValues());
+        assertEquals(2, sts.getRequests());
+
+        // another target account reuses the first hop
+        other.setRoleArn("arn:aws:iam::111111111111:role/deploy");
+        assertEquals(
+                "token3",
+                other.bind(build, null, null, TaskListener.NULL).getValues().get("AWS_SESSION_TOKEN"));
+        assertEquals(3, sts.getRequests());
+    }
+
+    private List<Future<Map<String, String>>> bindInParallel() throws InterruptedException {
+        AmazonWebServicesCredentialsBinding binding = new AmazonWebServicesCredentialsBinding(null, null, "role");
+        CountDownLatch start = new CountDownLatch(1);
+        Callable<Map<String, String>> bind = () -> {
+            start.await();
+            return binding.bind(build, null, null, TaskListener.NULL).getValues();
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(BINDS);
+        try {
+            List<Future<Map<String, String>>> bound = new ArrayList<>();
+            for (int i = 0; i < BINDS; i++) {
+                bound.add(executor.submit(bind));
+            }
+            start.countDown();
+            for (Future<Map<String, String>> f : bound) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    // checked by the caller
+                }
+            }
+            return bound;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
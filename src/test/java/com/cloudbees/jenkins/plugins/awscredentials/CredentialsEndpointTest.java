@@ -0,0 +1,74 @@
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import org.junit.After;
+import org.junit.Test;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+import software.amazon.awssdk.auth.credentials.ContainerCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+public class CredentialsEndpointTest {
+
+    private static final String ID = "test";
+
+    private static final String TOKEN = "secret-token";
+
+    @After
+    public void tearDown() {
+        CredentialsEndpoint.unserve(ID);
+        System.clearProperty("aws.containerCredentialsFullUri");
+        System.clearProperty("aws.containerAuthorizationToken");
+    }
+
+    @Test
+    public void servesCredentialsToTheSdk() throws Exception {
+        Instant expiration = Instant.now().plus(1, ChronoUnit.HOURS).truncatedTo(ChronoUnit.SECONDS);
+        int port = CredentialsEndpoint.serve(ID, TOKEN, snapshot("1", expiration));
+        AwsSessionCredentials credentials = fetch(port, TOKEN);
+        assertEquals("ASIA1", credentials.accessKeyId());
+        assertEquals("secret1", credentials.secretAccessKey());
+        assertEquals("token1", credentials.sessionToken());
+
+        CredentialsEndpoint.update(ID, snapshot("2", expiration.plus(1, ChronoUnit.HOURS)));
+        assertEquals("token2", fetch(port, TOKEN).sessionToken());
+    }
+
+    @Test
+    public void requiresToken() throws Exception {
+        int port =
+                CredentialsEndpoint.serve(ID, TOKEN, snapshot("1", Instant.now().plus(1, ChronoUnit.HOURS)));
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + port + "/").openConnection();
+        assertEquals(401, connection.getResponseCode());
+        assertThrows(SdkClientException.class, () -> fetch(port, "wrong"));
+    }
+
+    @Test
+    public void stops() throws Exception {
+        int port =
+                CredentialsEndpoint.serve(ID, TOKEN, snapshot("1", Instant.now().plus(1, ChronoUnit.HOURS)));
+        CredentialsEndpoint.unserve(ID);
+        assertEquals(false, CredentialsEndpoint.update(ID, snapshot("2", null)));
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + port + "/").openConnection();
+        assertThrows(IOException.class, connection::getResponseCode);
+    }
+
+    private static CredentialsEndpoint.Snapshot snapshot(String n, Instant expiration) {
+        return new CredentialsEndpoint.Snapshot("ASIA" + n, "secret" + n, "token" + n, expiration, null);
+    }
+
+    private static AwsSessionCredentials fetch(int port, String token) {
+        System.setProperty("aws.containerCredentialsFullUri", "http://127.0.0.1:" + port + "/");
+        System.setProperty("aws.containerAuthorizationToken", token);
+        try (ContainerCredentialsProvider provider =
+                ContainerCredentialsProvider.builder().build()) {
+            return (AwsSessionCredentials) provider.resolveCredentials();
+        }
+    }
+}
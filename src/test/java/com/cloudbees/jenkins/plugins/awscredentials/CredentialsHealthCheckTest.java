@@ -0,0 +1,188 @@
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+import hudson.util.StreamTaskListener;
+import java.io.ByteArrayOutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import jenkins.model.Jenkins;
+import org.htmlunit.HttpMethod;
+import org.htmlunit.WebRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.CLICommandInvoker;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.MockAuthorizationStrategy;
+import software.amazon.awssdk.services.sts.model.GetCallerIdentityResponse;
+
+public class CredentialsHealthCheckTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Rule
+    public StsStub sts = new StsStub();
+
+    private AWSCredentialsImpl role;
+
+    @Before
+    public void setUp() throws Exception {
+        AWSCredentialsConfiguration.get().setRegion("us-east-1");
+        StsClientRegistry.ENDPOINT = sts.getEndpoint();
+        role = new AWSCredentialsImpl(
+                CredentialsScope.GLOBAL,
+                "role",
+                "AKIAEXAMPLE",
+                "secret",
+                "",
+                "arn:aws:iam::123456789012:role/test",
+                null,
+                null);
+        SystemCredentialsProvider store = SystemCredentialsProvider.getInstance();
+        store.getCredentials()
+                .add(new AWSCredentialsImpl(CredentialsScope.GLOBAL, "keys", "AKIAEXAMPLE", "secret", ""));
+        store.getCredentials().add(role);
+        store.save();
+    }
+
+    @After
+    public void tearDown() {
+        CredentialsHealthCheck.get().clear();
+        StsClientRegistry.ENDPOINT = null;
+        StsClientRegistry.get().closeAll();
+        SessionCredentialsCache.get().clear();
+        StsRateLimiter.reset();
+        StsCircuitBreaker.reset();
+    }
+
+    @Test
+    public void assumesTheRoleEvenWithACachedSession() throws Exception {
+        role.resolveCredentials();
+        // revoked since
+        sts.failWith("AssumeRole", 403, "AccessDenied", -1);
+        assertTrue(CredentialsHealthCheck.get().start(0).join(1, TimeUnit.MINUTES));
+        assertEquals(CredentialsHealthCheck.Status.FAILED, result("/role").getStatus());
+        assertEquals(CredentialsHealthCheck.Status.OK, result("/keys").getStatus());
+        assertEquals("123456789012", result("/keys").getAccount());
+    }
+
+    @Test
+    public void completesTheRunWhenACheckThrowsAnError() throws Exception {
+        SystemCredentialsProvider store = SystemCredentialsProvider.getInstance();
+        store.getCredentials().add(new BrokenCredentials());
+        store.save();
+        assertTrue(CredentialsHealthCheck.get().start(0).join(1, TimeUnit.MINUTES));
+        assertEquals(CredentialsHealthCheck.Status.FAILED, result("/broken").getStatus());
+        assertEquals(CredentialsHealthCheck.Status.OK, result("/keys").getStatus());
+    }
+
+    @Test
+    public void periodicCheckLogsFailuresOfCredentialsNotCheckedRecently() throws Exception {
+        AWSCredentialsConfiguration config = AWSCredentialsConfiguration.get();
+        config.setHealthCheckIntervalHours(1);
+        sts.failWith("AssumeRole", 403, "AccessDenied", -1);
+        String log = runPeriodicCheck();
+        assertTrue(log, log.contains("FAILED /role"));
+        assertFalse(log, log.contains("/keys"));
+
+        // all checked less than an hour ago
+        int requests = sts.getRequests();
+        assertEquals("", runPeriodicCheck());
+        assertEquals(requests, sts.getRequests());
+
+        config.setHealthCheckIntervalHours(0);
+        CredentialsHealthCheck.get().clear();
+        assertEquals("", runPeriodicCheck());
+        assertEquals(requests, sts.getRequests());
+        assertNull(CredentialsHealthCheck.get().getCurrent());
+    }
+
+    @Test
+    public void onlyAdministratorsStartChecksFromTheLink() throws Exception {
+        secure();
+        JenkinsRule.WebClient reader =
+                j.createWebClient().withThrowExceptionOnFailingStatusCode(false).login("reader");
+        assertEquals(403, reader.getPage(check(reader)).getWebResponse().getStatusCode());
+        assertNull(CredentialsHealthCheck.get().getCurrent());
+
+        JenkinsRule.WebClient admin = j.createWebClient().login("admin");
+        admin.getPage(check(admin));
+        assertTrue(CredentialsHealthCheck.get().getCurrent().join(1, TimeUnit.MINUTES));
+        assertEquals(2, CredentialsHealthCheck.get().getResults().size());
+    }
+
+    @Test
+    public void commandPrintsTheResultsAndFailsWhenAnyFailed() {
+        secure();
+        CLICommandInvoker.Result result = new CLICommandInvoker(j, "check-aws-credentials")
+                .asUser("admin")
+                .invoke();
+        assertEquals(result.stderr(), 0, result.returnCode());
+        assertTrue(result.stdout(), result.stdout().contains("OK /keys: "));
+        assertTrue(result.stdout(), result.stdout().contains("OK /role: "));
+        assertTrue(result.stdout(), result.stdout().contains(Messages.CheckAwsCredentialsCommand_Summary(2)));
+
+        sts.failWith("AssumeRole", 403, "AccessDenied", -1);
+        result = new CLICommandInvoker(j, "check-aws-credentials")
+                .asUser("admin")
+                .invoke();
+        assertEquals(1, result.returnCode());
+        assertTrue(result.stdout(), result.stdout().contains("FAILED /role: "));
+
+        int requests = sts.getRequests();
+        result = new CLICommandInvoker(j, "check-aws-credentials")
+                .asUser("reader")
+                .invoke();
+        assertEquals(6, result.returnCode());
+        assertEquals(requests, sts.getRequests());
+    }
+
+    private void secure() {
+        j.jenkins.setSecurityRealm(j.createDummySecurityRealm());
+        j.jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy()
+                .grant(Jenkins.ADMINISTER)
+                .everywhere()
+                .to("admin")
+                .grant(Jenkins.READ)
+                .everywhere()
+                .to("reader"));
+    }
+
+    private WebRequest check(JenkinsRule.WebClient wc) throws Exception {
+        return wc.addCrumb(new WebRequest(
+                new URL(j.getURL(), "manage/" + CredentialsHealthLink.URL_NAME + "/check"), HttpMethod.POST));
+    }
+
+    private static String runPeriodicCheck() throws Exception {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        new CredentialsHealthCheck.PeriodicCheck().execute(new StreamTaskListener(log, StandardCharsets.UTF_8));
+        return log.toString(StandardCharsets.UTF_8);
+    }
+
+    private static final class BrokenCredentials extends AWSCredentialsImpl {
+        BrokenCredentials() {
+            super(CredentialsScope.GLOBAL, "broken", "AKIABROKEN", "secret", "");
+        }
+
+        @Override
+        GetCallerIdentityResponse getCallerIdentity() {
+            throw new NoClassDefFoundError("software/amazon/awssdk/services/sts/StsClient");
+        }
+    }
+
+    private static CredentialsHealthCheck.Result result(String key) {
+        return CredentialsHealthCheck.get().getResults().stream()
+                .filter(r -> r.getKey().equals(key))
+                .findFirst()
+                .orElseThrow();
+    }
+}
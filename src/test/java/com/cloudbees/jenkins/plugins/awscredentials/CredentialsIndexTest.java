@@ -0,0 +1,139 @@
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.cloudbees.hudson.plugins.folder.Folder;
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.CredentialsStore;
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+import com.cloudbees.plugins.credentials.domains.Domain;
+import hudson.model.ModelObject;
+import hudson.util.ListBoxModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class CredentialsIndexTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private final CredentialsIndex index = CredentialsIndex.get();
+
+    @After
+    public void tearDown() {
+        CredentialsIndex.MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    }
+
+    @Test
+    public void rebuildsWhenAStoreIsSaved() throws Exception {
+        SystemCredentialsProvider store = SystemCredentialsProvider.getInstance();
+        store.getCredentials().add(credentials("a", "first"));
+        store.save();
+        assertEquals("first", index.find("a", null).getDescription());
+
+        store.getCredentials().set(0, credentials("a", "second"));
+        // not saved yet, so nothing told the index
+        assertEquals("first", index.find("a", null).getDescription());
+        store.save();
+        assertEquals("second", index.find("a", null).getDescription());
+        assertEquals("second", index.list(null).get(0).getDescription());
+    }
+
+    @Test
+    public void rebuildsOnlyTheIndexesBelowAChangedStore() throws Exception {
+        Folder first = j.jenkins.createProject(Folder.class, "first");
+        Folder sub = first.createProject(Folder.class, "sub");
+        Folder second = j.jenkins.createProject(Folder.class, "second");
+        store(first).addCredentials(Domain.global(), credentials("a", "first"));
+        assertEquals(0, index.list(null).size());
+        assertEquals(1, index.list(sub).size());
+        assertEquals(0, index.list(second).size());
+
+        // not saved, so only seen by indexes built from now on
+        SystemCredentialsProvider.getInstance().getCredentials().add(credentials("b", "other"));
+        // the credentials of the folder did not change
+        first.save();
+        assertEquals(0, index.list(null).size());
+        assertEquals(1, index.list(sub).size());
+
+        store(first).updateCredentials(Domain.global(), credentials("a", "first"), credentials("a", "second"));
+        assertEquals("second", index.find("a", sub).getDescription());
+        assertEquals(2, index.list(sub).size());
+        assertEquals(0, index.list(second).size());
+        assertEquals(0, index.list(null).size());
+    }
+
+    @Test
+    public void rebuildsWhenTooOld() throws Exception {
+        SystemCredentialsProvider store = SystemCredentialsProvider.getInstance();
+        store.getCredentials().add(credentials("a", "first"));
+        store.save();
+        assertEquals(1, index.list(null).size());
+
+        // e.g. a provider that is not backed by a saveable store
+        store.getCredentials().add(credentials("b", "other"));
+        assertEquals(1, index.list(null).size());
+        CredentialsIndex.MAX_AGE_MILLIS = 0;
+        assertEquals(2, index.list(null).size());
+    }
+
+    @Test
+    public void rebuildsOnMissOnlyWhenNotJustBuilt() throws Exception {
+        SystemCredentialsProvider store = SystemCredentialsProvider.getInstance();
+        store.getCredentials().add(credentials("a", "first"));
+        store.save();
+        assertNull(index.find("missing", null));
+
+        store.getCredentials().add(credentials("b", "other"));
+        assertNotNull(index.find("b", null));
+    }
+
+    @Test
+    public void listsPagesOfTheMatchingCredentials() throws Exception {
+        SystemCredentialsProvider store = SystemCredentialsProvider.getInstance();
+        for (int i = 0; i < 5; i++) {
+            store.getCredentials().add(credentials("prod-" + i, ""));
+        }
+        store.getCredentials().add(credentials("staging", ""));
+        store.save();
+
+        assertEquals(
+                Arrays.asList("", "prod-1", "prod-2"),
+                values(AWSCredentialsHelper.doFillCredentialsIdItems(j.jenkins, null, "PROD", 1, 2)));
+        // the current value is always listed
+        assertEquals(
+                Arrays.asList("", "prod-0", "staging"),
+                values(AWSCredentialsHelper.doFillCredentialsIdItems(j.jenkins, "staging", "prod", 0, 1)));
+        assertEquals(7, AWSCredentialsHelper.doFillCredentialsIdItems(j.jenkins, null, null, 0, 100).size());
+    }
+
+    private static List<String> values(ListBoxModel model) {
+        List<String> values = new ArrayList<>();
+        for (ListBoxModel.Option option : model) {
+            values.add(option.value);
+        }
+        return values;
+    }
+
+    private static CredentialsStore store(ModelObject context) {
+        for (CredentialsStore store : CredentialsProvider.lookupStores(context)) {
+            if (store.getContext() == context) {
+                return store;
+            }
+        }
+        throw new AssertionError("No credentials store in " + context.getDisplayName());
+    }
+
+    private static AWSCredentialsImpl credentials(String id, String description) {
+        return new AWSCredentialsImpl(CredentialsScope.GLOBAL, id, "AKIAEXAMPLE", "secret", description);
+    }
+}
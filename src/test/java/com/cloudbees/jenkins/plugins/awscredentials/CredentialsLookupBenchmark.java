@@ -0,0 +1,93 @@
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import com.cloudbees.hudson.plugins.folder.Folder;
+import com.cloudbees.plugins.credentials.Credentials;
+import com.cloudbees.plugins.credentials.CredentialsMatchers;
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.CredentialsStore;
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+import com.cloudbees.plugins.credentials.domains.Domain;
+import hudson.security.ACL;
+import java.util.Collections;
+import java.util.List;
+import jenkins.benchmark.jmh.JmhBenchmark;
+import jenkins.benchmark.jmh.JmhBenchmarkState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Looking credentials up by id with {@link AWSCredentialsHelper}, in stores of various sizes, from the root and from a
+ * folder with its own store. Thanks to {@link CredentialsIndex}, the cost should not depend on the size.
+ */
+@JmhBenchmark
+public class CredentialsLookupBenchmark {
+
+    public static class StoreState extends JmhBenchmarkState {
+        @Param({"10", "100", "1000", "10000"})
+        public int credentials;
+
+        String first;
+        String last;
+        Folder folder;
+
+        @Override
+        public void setup() throws Exception {
+            List<Credentials> store = SystemCredentialsProvider.getInstance().getCredentials();
+            for (int i = 0; i < credentials; i++) {
+                store.add(new AWSCredentialsImpl(CredentialsScope.GLOBAL, "aws-" + i, "AKIA" + i, "secret", ""));
+            }
+            SystemCredentialsProvider.getInstance().save();
+            first = "aws-0";
+            last = "aws-" + (credentials - 1);
+            // credentials of folders are indexed with those of the parents, by folder
+            folder = getJenkins().createProject(Folder.class, "benchmark");
+            for (CredentialsStore folderStore : CredentialsProvider.lookupStores(folder)) {
+                if (folderStore.getContext() == folder) {
+                    folderStore.addCredentials(
+                            Domain.global(),
+                            new AWSCredentialsImpl(CredentialsScope.GLOBAL, "folder", "AKIAFOLDER", "secret", ""));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public AmazonWebServicesCredentials lookupFirst(StoreState state) {
+        return AWSCredentialsHelper.getCredentials(state.first, JmhBenchmarkState.getJenkins());
+    }
+
+    @Benchmark
+    public AmazonWebServicesCredentials lookupLast(StoreState state) {
+        return AWSCredentialsHelper.getCredentials(state.last, JmhBenchmarkState.getJenkins());
+    }
+
+    @Benchmark
+    public AmazonWebServicesCredentials lookupMissing(StoreState state) {
+        return AWSCredentialsHelper.getCredentials("missing", JmhBenchmarkState.getJenkins());
+    }
+
+    @Benchmark
+    public AmazonWebServicesCredentials lookupInFolder(StoreState state) {
+        return AWSCredentialsHelper.getCredentials("folder", state.folder);
+    }
+
+    @Benchmark
+    public AmazonWebServicesCredentials lookupLastFromFolder(StoreState state) {
+        return AWSCredentialsHelper.getCredentials(state.last, state.folder);
+    }
+
+    /**
+     * Baseline: what {@link #lookupLast} costs without the index, growing with the number of credentials.
+     */
+    @Benchmark
+    public AmazonWebServicesCredentials scanLast(StoreState state) {
+        return CredentialsMatchers.firstOrNull(
+                CredentialsProvider.lookupCredentialsInItemGroup(
+                        AmazonWebServicesCredentials.class,
+                        JmhBenchmarkState.getJenkins(),
+                        ACL.SYSTEM2,
+                        Collections.emptyList()),
+                CredentialsMatchers.withId(state.last));
+    }
+}
@@ -0,0 +1,77 @@
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import hudson.model.FreeStyleProject;
+import hudson.model.ItemGroup;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class CredentialsPrefetcherTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Before
+    public void setUp() {
+        AWSCredentialsConfiguration.get().setPrefetchOnQueue(true);
+    }
+
+    @After
+    public void tearDown() {
+        CredentialsPrefetcher.clear();
+    }
+
+    @Test
+    public void prefetchesWhatTheJobBoundWhenItIsQueued() throws Exception {
+        FreeStyleProject project = j.createFreeStyleProject();
+        CompletableFuture<ItemGroup<?>> prefetched = new CompletableFuture<>();
+        CredentialsPrefetcher.record(project, "creds", prefetched::complete);
+
+        // quiet period long enough for the build to stay queued
+        project.scheduleBuild2(60);
+        try {
+            assertSame(project.getParent(), prefetched.get(10, TimeUnit.SECONDS));
+        } finally {
+            j.jenkins.getQueue().cancel(project);
+        }
+    }
+
+    @Test
+    public void dropsPrefetchesOverTheQueueBound() throws Exception {
+        CountDownLatch started = new CountDownLatch(CredentialsPrefetcher.WORKERS);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(CredentialsPrefetcher.WORKERS + CredentialsPrefetcher.MAX_QUEUED);
+        CredentialsPrefetcher.Prefetch blocking = context -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        };
+        long dropped = CredentialsMetrics.PREFETCHES_DROPPED.get();
+        try {
+            for (int i = 0; i < CredentialsPrefetcher.WORKERS; i++) {
+                CredentialsPrefetcher.submit("job", j.jenkins, blocking);
+            }
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < CredentialsPrefetcher.MAX_QUEUED + 5; i++) {
+                CredentialsPrefetcher.submit("job", j.jenkins, blocking);
+            }
+            assertEquals(dropped + 5, CredentialsMetrics.PREFETCHES_DROPPED.get());
+        } finally {
+            release.countDown();
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+}
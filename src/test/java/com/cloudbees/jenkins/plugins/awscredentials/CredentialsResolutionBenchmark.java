@@ -0,0 +1,89 @@
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+import hudson.model.FreeStyleProject;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import jenkins.benchmark.jmh.JmhBenchmark;
+import jenkins.benchmark.jmh.JmhBenchmarkState;
+import org.jenkinsci.plugins.credentialsbinding.MultiBinding;
+import org.openjdk.jmh.annotations.Benchmark;
+import software.amazon.awssdk.auth.credentials.AwsCredentials;
+
+/**
+ * Credential resolution and binding, against a local STS stub.
+ */
+@JmhBenchmark
+public class CredentialsResolutionBenchmark {
+
+    private static final String ROLE_ARN = "arn:aws:iam::123456789012:role/benchmark";
+
+    private static final String MFA_SERIAL = "arn:aws:iam::123456789012:mfa/benchmark";
+
+    public static class StsState extends JmhBenchmarkState {
+        final StsStub sts = new StsStub();
+        AWSCredentialsImpl staticKeys;
+        AWSCredentialsImpl role;
+        AWSCredentialsImpl mfaRole;
+        AmazonWebServicesCredentialsBinding bindStaticKeys;
+        AmazonWebServicesCredentialsBinding bindRole;
+        Run<?, ?> build;
+
+        @Override
+        public void setup() throws Exception {
+            sts.before();
+            StsClientRegistry.ENDPOINT = sts.getEndpoint();
+            AWSCredentialsConfiguration.get().setRegion("us-east-1");
+            staticKeys = new AWSCredentialsImpl(CredentialsScope.GLOBAL, "static", "AKIAEXAMPLE", "secret", "");
+            role = new AWSCredentialsImpl(
+                    CredentialsScope.GLOBAL, "role", "AKIAEXAMPLE", "secret", "", ROLE_ARN, null, null);
+            mfaRole = new AWSCredentialsImpl(
+                    CredentialsScope.GLOBAL, "mfa", "AKIAEXAMPLE", "secret", "", ROLE_ARN, MFA_SERIAL, null);
+            // the code is only sent to STS to start the MFA session, later role sessions come from it
+            mfaRole.setReuseMfaSession(true);
+            SystemCredentialsProvider.getInstance().getCredentials().add(staticKeys);
+            SystemCredentialsProvider.getInstance().getCredentials().add(role);
+            SystemCredentialsProvider.getInstance().getCredentials().add(mfaRole);
+            SystemCredentialsProvider.getInstance().save();
+            bindStaticKeys = new AmazonWebServicesCredentialsBinding(null, null, "static");
+            bindRole = new AmazonWebServicesCredentialsBinding(null, null, "static");
+            bindRole.setRoleArn(ROLE_ARN);
+            FreeStyleProject project = getJenkins().createProject(FreeStyleProject.class, "benchmark");
+            build = project.scheduleBuild2(0).get();
+        }
+
+        @Override
+        public void tearDown() {
+            StsClientRegistry.ENDPOINT = null;
+            StsClientRegistry.get().closeAll();
+            SessionCredentialsCache.get().clear();
+            sts.after();
+        }
+    }
+
+    @Benchmark
+    public AwsCredentials resolveStaticKeys(StsState state) {
+        return state.staticKeys.resolveCredentials();
+    }
+
+    @Benchmark
+    public AwsCredentials resolveRole(StsState state) {
+        return state.role.resolveCredentials();
+    }
+
+    @Benchmark
+    public AwsCredentials resolveRoleWithMfa(StsState state) {
+        return state.mfaRole.resolveCredentials("123456");
+    }
+
+    @Benchmark
+    public MultiBinding.MultiEnvironment bindStaticKeys(StsState state) throws Exception {
+        return state.bindStaticKeys.bind(state.build, null, null, TaskListener.NULL);
+    }
+
+    @Benchmark
+    public MultiBinding.MultiEnvironment bindRole(StsState state) throws Exception {
+        return state.bindRole.bind(state.build, null, null, TaskListener.NULL);
+    }
+}
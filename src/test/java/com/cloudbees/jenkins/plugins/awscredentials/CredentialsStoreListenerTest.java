@@ -0,0 +1,113 @@
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import static org.junit.Assert.assertEquals;
+
+import com.cloudbees.hudson.plugins.folder.Folder;
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.CredentialsStore;
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+import com.cloudbees.plugins.credentials.domains.Domain;
+import hudson.model.ModelObject;
+import java.time.Instant;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+
+public class CredentialsStoreListenerTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private final SessionCredentialsCache cache = SessionCredentialsCache.get();
+
+    @After
+    public void clear() {
+        cache.clear();
+    }
+
+    @Test
+    public void dropsSessionsOfUpdatedAndRemovedCredentials() throws Exception {
+        SystemCredentialsProvider store = SystemCredentialsProvider.getInstance();
+        AWSCredentialsImpl a = credentials("a", "AKIAFIRST");
+        AWSCredentialsImpl b = credentials("b", "AKIAOTHER");
+        store.getCredentials().add(a);
+        store.getCredentials().add(b);
+        store.save();
+        cache.getSession(a.sessionKey(), a.fingerprint(), CredentialsStoreListenerTest::session);
+        cache.getSession(b.sessionKey(), b.fingerprint(), CredentialsStoreListenerTest::session);
+        assertEquals(2, cache.size());
+
+        // unrelated saves keep the sessions
+        store.save();
+        assertEquals(2, cache.size());
+
+        store.getCredentials().set(0, credentials("a", "AKIAROTATED"));
+        store.save();
+        assertEquals(1, cache.size());
+
+        store.getCredentials().remove(b);
+        store.save();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void keepsSessionsOfCredentialsOfOtherStores() throws Exception {
+        Folder first = j.jenkins.createProject(Folder.class, "first");
+        Folder second = j.jenkins.createProject(Folder.class, "second");
+        // same id, but different credentials
+        AWSCredentialsImpl a1 = credentials("a", "AKIAFIRST");
+        AWSCredentialsImpl a2 = credentials("a", "AKIASECOND");
+        store(first).addCredentials(Domain.global(), a1);
+        store(second).addCredentials(Domain.global(), a2);
+        cache.getSession(a1.sessionKey(), a1.fingerprint(), CredentialsStoreListenerTest::session);
+        cache.getSession(a2.sessionKey(), a2.fingerprint(), CredentialsStoreListenerTest::session);
+        assertEquals(2, cache.size());
+
+        // the system store never held them
+        SystemCredentialsProvider.getInstance().save();
+        assertEquals(2, cache.size());
+
+        store(first).updateCredentials(Domain.global(), a1, credentials("a", "AKIAROTATED"));
+        assertEquals(1, cache.size());
+
+        // the credential of the second folder is still around
+        store(first).removeCredentials(Domain.global(), credentials("a", "AKIAROTATED"));
+        assertEquals(1, cache.size());
+
+        store(second).removeCredentials(Domain.global(), a2);
+        assertEquals(0, cache.size());
+    }
+
+    private static CredentialsStore store(ModelObject context) {
+        for (CredentialsStore store : CredentialsProvider.lookupStores(context)) {
+            if (store.getContext() == context) {
+                return store;
+            }
+        }
+        throw new AssertionError("No credentials store in " + context.getDisplayName());
+    }
+
+    private static AWSCredentialsImpl credentials(String id, String accessKey) {
+        return new AWSCredentialsImpl(
+                CredentialsScope.GLOBAL,
+                id,
+                accessKey,
+                "secret",
+                "",
+                "arn:aws:iam::123456789012:role/" + id,
+                null,
+                null);
+    }
+
+    private static AwsSessionCredentials session() {
+        return AwsSessionCredentials.builder()
+                .accessKeyId("ASIAEXAMPLE")
+                .secretAccessKey("secret")
+                .sessionToken("token")
+                .expirationTime(Instant.now().plusSeconds(3600))
+                .build();
+    }
+}
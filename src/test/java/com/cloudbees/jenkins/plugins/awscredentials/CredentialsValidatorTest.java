@@ -0,0 +1,79 @@
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import hudson.util.FormValidation;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.After;
+import org.junit.Test;
+
+public class CredentialsValidatorTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        CredentialsValidator.WAIT_MILLIS = 1000;
+        CredentialsValidator.clear();
+    }
+
+    @Test
+    public void tellsToCheckAgainWhileTheCheckRuns() throws Exception {
+        assertEquals(Duration.ofSeconds(10), CredentialsValidator.apiCallTimeout());
+
+        FormValidation result = CredentialsValidator.validate("slow", blocking());
+        assertEquals(FormValidation.Kind.WARNING, result.kind);
+        assertEquals(Messages.AWSCredentialsImpl_ValidationPending(), result.getMessage());
+
+        // the check kept running, and the next identical one gets its result
+        release.countDown();
+        assertEquals(
+                "checked", CredentialsValidator.validate("slow", blocking()).getMessage());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void reusesTheResultOfARepeatedCheck() {
+        Supplier<FormValidation> check = () -> FormValidation.ok("checked " + calls.incrementAndGet());
+        assertEquals("checked 1", CredentialsValidator.validate("same", check).getMessage());
+        assertEquals("checked 1", CredentialsValidator.validate("same", check).getMessage());
+        assertEquals("checked 2", CredentialsValidator.validate("other", check).getMessage());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void refusesChecksOverTheBound() throws Exception {
+        CredentialsValidator.WAIT_MILLIS = 0;
+        for (int i = 0; i < CredentialsValidator.MAX_RUNNING + CredentialsValidator.MAX_QUEUED; i++) {
+            assertEquals(FormValidation.Kind.WARNING, CredentialsValidator.validate("check " + i, blocking()).kind);
+        }
+        FormValidation result = CredentialsValidator.validate("one more", blocking());
+        assertEquals(Messages.AWSCredentialsImpl_ValidationBusy(), result.getMessage());
+
+        release.countDown();
+        CredentialsValidator.WAIT_MILLIS = 10_000;
+        // a refused check is not remembered
+        assertEquals(
+                "checked", CredentialsValidator.validate("one more", blocking()).getMessage());
+    }
+
+    private Supplier<FormValidation> blocking() {
+        return () -> {
+            calls.incrementAndGet();
+            try {
+                assertTrue(release.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return FormValidation.ok("checked");
+        };
+    }
+}
@@ -0,0 +1,114 @@
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import software.amazon.awssdk.auth.credentials.AwsCredentials;
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+public class MfaSessionTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Rule
+    public StsStub sts = new StsStub();
+
+    private SessionCredentialsRefreshTest.MutableClock clock;
+
+    private SessionCredentialsRefreshTest.Scheduler scheduler;
+
+    private SessionCredentialsCache cache;
+
+    private AWSCredentialsImpl credentials;
+
+    @Before
+    public void setUp() {
+        AWSCredentialsConfiguration.get().setRegion("us-east-1");
+        // the sessions of the stub expire relative to the current time
+        clock = new SessionCredentialsRefreshTest.MutableClock();
+        scheduler = new SessionCredentialsRefreshTest.Scheduler();
+        cache = SessionCredentialsCache.INSTANCE;
+        SessionCredentialsCache.INSTANCE = new SessionCredentialsCache(clock, () -> scheduler);
+        credentials = new AWSCredentialsImpl(
+                CredentialsScope.GLOBAL,
+                "mfa",
+                "AKIAEXAMPLE",
+                "secret",
+                "",
+                "arn:aws:iam::123456789012:role/test",
+                "arn:aws:iam::123456789012:mfa/user",
+                null);
+        credentials.setReuseMfaSession(true);
+        StsClientRegistry.ENDPOINT = sts.getEndpoint();
+    }
+
+    @After
+    public void tearDown() {
+        AWSCredentialsConfiguration config = AWSCredentialsConfiguration.get();
+        config.setSessionRefreshAhead(false);
+        config.setSessionExpiryMarginSeconds(AWSCredentialsConfiguration.DEFAULT_SESSION_EXPIRY_MARGIN_SECONDS);
+        StsClientRegistry.ENDPOINT = null;
+        StsClientRegistry.get().closeAll();
+        SessionCredentialsCache.get().clear();
+        SessionCredentialsCache.INSTANCE = cache;
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void reusesMfaSessionForLaterRoleSessions() {
+        AwsCredentials first = credentials.resolveCredentials("123456");
+        assertEquals(List.of("GetSessionToken", "AssumeRole"), sts.getActions());
+
+        // the role session is cached, no code needed
+        assertEquals(first, credentials.resolveCredentials(null));
+        assertEquals(2, sts.getRequests());
+
+        // role sessions are renewed with the MFA session, still no code needed
+        AWSCredentialsConfiguration.get().setSessionExpiryMarginSeconds(3600);
+        credentials.resolveCredentials(null);
+        assertEquals(List.of("GetSessionToken", "AssumeRole", "AssumeRole"), sts.getActions());
+    }
+
+    @Test
+    public void needsCodeToStartMfaSession() {
+        SdkClientException e = assertThrows(SdkClientException.class, () -> credentials.resolveCredentials(""));
+        assertTrue(e.getMessage(), e.getMessage().contains("MFA token"));
+        assertEquals(0, sts.getRequests());
+    }
+
+    @Test
+    public void doesNotReuseTheCodeToRefreshAfterTheMfaSessionExpired() {
+        AWSCredentialsConfiguration config = AWSCredentialsConfiguration.get();
+        config.setSessionRefreshAhead(true);
+        // the MFA session is unusable at once, the role session gets refreshed within a few seconds
+        config.setSessionExpiryMarginSeconds(3600);
+        sts.setSessionDuration("GetSessionToken", Duration.ofHours(1));
+        sts.setSessionDuration("AssumeRole", Duration.ofSeconds(3605));
+        AwsCredentials first = credentials.resolveCredentials("123456");
+        assertEquals(List.of("GetSessionToken", "AssumeRole"), sts.getActions());
+
+        // the refresh did not call STS with the used code, and the session is kept until it expires
+        clock.advance(TimeUnit.SECONDS.toMillis(3));
+        scheduler.runNext();
+        assertEquals(first, credentials.resolveCredentials(null));
+        clock.advance(TimeUnit.SECONDS.toMillis(3));
+        assertEquals(List.of("GetSessionToken", "AssumeRole"), sts.getActions());
+
+        // a new code is needed now
+        SdkClientException e = assertThrows(SdkClientException.class, () -> credentials.resolveCredentials(null));
+        assertTrue(e.getMessage(), e.getMessage().contains("MFA token"));
+        credentials.resolveCredentials("654321");
+        assertEquals(List.of("GetSessionToken", "AssumeRole", "GetSessionToken", "AssumeRole"), sts.getActions());
+    }
+}
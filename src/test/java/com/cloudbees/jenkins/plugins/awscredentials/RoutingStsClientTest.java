@@ -0,0 +1,108 @@
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.net.ServerSocket;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.sts.StsClient;
+import software.amazon.awssdk.services.sts.model.AssumeRoleRequest;
+import software.amazon.awssdk.services.sts.model.StsException;
+
+public class RoutingStsClientTest {
+
+    @Rule
+    public StsStub near = new StsStub();
+
+    @Rule
+    public StsStub far = new StsStub();
+
+    private final SdkHttpClient httpClient = ApacheHttpClient.create();
+
+    @After
+    public void tearDown() {
+        httpClient.close();
+        RoutingStsClient.resetStats();
+    }
+
+    @Test
+    public void parsesRegionsAndEndpoints() {
+        List<RoutingStsClient.Endpoint> endpoints =
+                RoutingStsClient.parse("eu-west-1=https://sts.example.com\neu-central-1, us-east-1");
+        assertEquals("[eu-west-1=https://sts.example.com, eu-central-1, us-east-1]", endpoints.toString());
+        assertThrows(IllegalArgumentException.class, () -> RoutingStsClient.parse("eu-west-1=sts.example.com"));
+    }
+
+    @Test
+    public void doesNotFailOverOnThrottling() {
+        // STS throttles the calling account, not the endpoint for everyone
+        near.failWith(400, "Throttling");
+        try (StsClient client = client(near.getEndpoint(), far.getEndpoint())) {
+            assertThrows(StsException.class, () -> assumeRole(client));
+            assertEquals(0, far.getRequests());
+        }
+    }
+
+    @Test
+    public void failsOverOnConnectionError() throws Exception {
+        String closed;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closed = "http://localhost:" + socket.getLocalPort();
+        }
+        try (StsClient client = client(closed, far.getEndpoint())) {
+            assumeRole(client);
+            assertEquals(1, far.getRequests());
+        }
+    }
+
+    @Test
+    public void doesNotFailOverOnAccessDenied() {
+        near.failWith(403, "AccessDenied");
+        try (StsClient client = client(near.getEndpoint(), far.getEndpoint())) {
+            assertThrows(StsException.class, () -> assumeRole(client));
+            assertEquals(0, far.getRequests());
+        }
+    }
+
+    @Test
+    public void prefersFastestEndpoint() {
+        near.setLatencyMillis(300);
+        try (StsClient client = client(near.getEndpoint(), far.getEndpoint())) {
+            for (int i = 0; i < 5; i++) {
+                assumeRole(client);
+            }
+            // each endpoint is measured once, then the fastest one gets the calls
+            assertEquals(1, near.getRequests());
+            assertEquals(4, far.getRequests());
+        }
+    }
+
+    private StsClient client(String... endpoints) {
+        RoutingStsClient.Endpoint[] parsed = new RoutingStsClient.Endpoint[endpoints.length];
+        for (int i = 0; i < endpoints.length; i++) {
+            parsed[i] = new RoutingStsClient.Endpoint(Region.EU_WEST_1, URI.create(endpoints[i]));
+        }
+        StaticCredentialsProvider provider =
+                StaticCredentialsProvider.create(AwsBasicCredentials.create("AKIAEXAMPLE", "secret"));
+        return new RoutingStsClient(
+                Arrays.asList(parsed),
+                e -> AWSCredentialsImpl.buildStsClient(provider, "test", e.getRegion(), e.getUri(), httpClient));
+    }
+
+    private static void assumeRole(StsClient client) {
+        client.assumeRole(AssumeRoleRequest.builder()
+                .roleArn("arn:aws:iam::123456789012:role/test")
+                .roleSessionName("Jenkins")
+                .build());
+    }
+}
@@ -0,0 +1,109 @@
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.After;
+import org.junit.Test;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+
+public class SessionCredentialsCacheTest {
+
+    private final SessionCredentialsCache cache = SessionCredentialsCache.get();
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @After
+    public void clear() {
+        cache.clear();
+    }
+
+    @Test
+    public void reusesSessionUntilExpiryMargin() {
+        SessionCredentialsCache.Key key = key("a");
+        AwsSessionCredentials first = cache.getSession(key, "fp", loader(3600));
+        AwsSessionCredentials second = cache.getSession(key, "fp", loader(3600));
+        assertSame(first, second);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void doesNotReuseSessionCloseToExpiry() {
+        SessionCredentialsCache.Key key = key("a");
+        // default margin is 300 seconds
+        AwsSessionCredentials first = cache.getSession(key, "fp", loader(60));
+        AwsSessionCredentials second = cache.getSession(key, "fp", loader(60));
+        assertNotSame(first, second);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void doesNotReuseSessionOfPreviousKeys() {
+        SessionCredentialsCache.Key key = key("a");
+        cache.getSession(key, "fp", loader(3600));
+        cache.getSession(key, "rotated", loader(3600));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void evictsRemovedAndUpdatedCredentials() {
+        cache.getSession(key("a"), "fp-a", loader(3600));
+        cache.getSession(key("b"), "fp-b", loader(3600));
+        cache.getSession(key("c"), "fp-c", loader(3600));
+        cache.evict(Collections.singleton("fp-other"));
+        assertEquals(3, cache.size());
+        cache.evict(Collections.singleton("fp-b"));
+        assertEquals(2, cache.size());
+        cache.evict(new HashSet<>(Arrays.asList("fp-a", "fp-c")));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void keepsSessionsOfEachVersionOfAKey() {
+        SessionCredentialsCache.Key key = key("a");
+        // e.g. credentials of two folders sharing an id
+        cache.getSession(key, "fp-1", loader(3600));
+        cache.getSession(key, "fp-2", loader(3600));
+        cache.getSession(key, "fp-1", loader(3600));
+        cache.getSession(key, "fp-2", loader(3600));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedSessionsOverTheSizeLimit() {
+        int size = AWSCredentialsConfiguration.DEFAULT_SESSION_CACHE_SIZE;
+        for (int i = 0; i < size; i++) {
+            cache.getSession(key(String.valueOf(i)), "fp", loader(3600));
+        }
+        // used again, so no longer the eldest
+        cache.getSession(key("0"), "fp", loader(3600));
+        cache.getSession(key("new"), "fp", loader(3600));
+        assertEquals(size, cache.size());
+        assertEquals(size + 1, calls.get());
+
+        cache.getSession(key("0"), "fp", loader(3600));
+        assertEquals(size + 1, calls.get());
+        cache.getSession(key("1"), "fp", loader(3600));
+        assertEquals(size + 2, calls.get());
+    }
+
+    private static SessionCredentialsCache.Key key(String id) {
+        return new SessionCredentialsCache.Key(id, "arn:aws:iam::123456789012:role/" + id, null, 3600);
+    }
+
+    private Supplier<AwsSessionCredentials> loader(long validitySeconds) {
+        return () -> AwsSessionCredentials.builder()
+                .accessKeyId("ASIA" + calls.incrementAndGet())
+                .secretAccessKey("secret")
+                .sessionToken("token")
+                .expirationTime(Instant.now().plusSeconds(validitySeconds))
+                .build();
+    }
+}
@@ -0,0 +1,175 @@
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+import software.amazon.awssdk.services.sts.model.StsException;
+
+public class SessionCredentialsRefreshTest {
+
+    private static final long SESSION_SECONDS = 3600;
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private final MutableClock clock = new MutableClock();
+
+    private final Scheduler scheduler = new Scheduler();
+
+    private final SessionCredentialsCache cache = new SessionCredentialsCache(clock, () -> scheduler);
+
+    private final SessionCredentialsCache.Key key =
+            new SessionCredentialsCache.Key("a", "arn:aws:iam::123456789012:role/a", null, 3600);
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private volatile boolean failing;
+
+    @Before
+    public void setUp() {
+        AWSCredentialsConfiguration config = AWSCredentialsConfiguration.get();
+        config.setSessionRefreshAhead(true);
+        config.setSessionExpiryMarginSeconds(AWSCredentialsConfiguration.DEFAULT_SESSION_EXPIRY_MARGIN_SECONDS);
+        config.setSessionRefreshIdleMinutes(10);
+    }
+
+    @After
+    public void tearDown() {
+        cache.clear();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void refreshesInTheLastFifthOfTheSession() {
+        AwsSessionCredentials first = cache.getSession(key, "fp", loader());
+        long usableFor = TimeUnit.SECONDS.toMillis(
+                SESSION_SECONDS - AWSCredentialsConfiguration.DEFAULT_SESSION_EXPIRY_MARGIN_SECONDS);
+        assertEquals(1, scheduler.delays.size());
+        long delay = scheduler.delays.get(0);
+        assertTrue(String.valueOf(delay), delay >= usableFor - usableFor / 5 && delay <= usableFor);
+
+        // used shortly before the refresh
+        clock.advance(delay - 60_000);
+        assertSame(first, cache.getSession(key, "fp", loader()));
+        clock.advance(60_000);
+        scheduler.runNext();
+        assertEquals(2, calls.get());
+
+        AwsSessionCredentials refreshed = cache.getSession(key, "fp", loader());
+        assertEquals("ASIA2", refreshed.accessKeyId());
+        assertEquals(2, calls.get());
+        // and the refreshed session is refreshed in turn
+        assertEquals(1, scheduler.tasks.size());
+    }
+
+    @Test
+    public void doesNotRefreshIdleSessions() {
+        cache.getSession(key, "fp", loader());
+        // not used for longer than the 10 minutes configured
+        clock.advance(scheduler.delays.get(0));
+        scheduler.runNext();
+        assertEquals(1, calls.get());
+        assertEquals(0, scheduler.tasks.size());
+    }
+
+    @Test
+    public void keepsTheSessionWhenRefreshFails() {
+        AwsSessionCredentials first = cache.getSession(key, "fp", loader());
+        clock.advance(scheduler.delays.get(0) - 60_000);
+        cache.getSession(key, "fp", loader());
+        clock.advance(60_000);
+        failing = true;
+        scheduler.runNext();
+        assertEquals(2, calls.get());
+
+        // still handed out until the expiry margin
+        assertSame(first, cache.getSession(key, "fp", loader()));
+        assertEquals(2, calls.get());
+    }
+
+    private Supplier<AwsSessionCredentials> loader() {
+        return () -> {
+            int call = calls.incrementAndGet();
+            if (failing) {
+                throw (StsException) StsException.builder()
+                        .statusCode(403)
+                        .message("AccessDenied")
+                        .build();
+            }
+            return AwsSessionCredentials.builder()
+                    .accessKeyId("ASIA" + call)
+                    .secretAccessKey("secret")
+                    .sessionToken("token")
+                    .expirationTime(clock.instant().plusSeconds(SESSION_SECONDS))
+                    .build();
+        };
+    }
+
+    /**
+     * Records the refreshes instead of running them, so that tests run them when they see fit.
+     */
+    static final class Scheduler extends ScheduledThreadPoolExecutor {
+        final List<Runnable> tasks = new ArrayList<>();
+        final List<Long> delays = new ArrayList<>();
+
+        Scheduler() {
+            super(1);
+        }
+
+        @Override
+        public synchronized ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            tasks.add(command);
+            delays.add(unit.toMillis(delay));
+            return super.schedule(() -> {}, 1, TimeUnit.DAYS);
+        }
+
+        void runNext() {
+            Runnable task;
+            synchronized (this) {
+                task = tasks.remove(0);
+            }
+            task.run();
+        }
+    }
+
+    static final class MutableClock extends Clock {
+        private Instant now = Instant.now();
+
+        void advance(long millis) {
+            now = now.plusMillis(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
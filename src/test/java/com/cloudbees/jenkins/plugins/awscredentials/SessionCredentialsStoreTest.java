@@ -0,0 +1,79 @@
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.Objects;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.JenkinsRule;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+
+public class SessionCredentialsStoreTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private final SessionCredentialsCache.Key key =
+            new SessionCredentialsCache.Key("a", "arn:aws:iam::123456789012:role/a", null, 3600);
+
+    @Test
+    public void readsBackSessionsAfterRestart() throws Exception {
+        SessionCredentialsStore store =
+                new SessionCredentialsStore(tmp.getRoot().toPath());
+        AwsSessionCredentials session = session(3600);
+        store.save(key, "fp", session, session.expirationTime().get());
+        store.flush();
+        for (File file : Objects.requireNonNull(tmp.getRoot().listFiles())) {
+            // encrypted
+            assertEquals(-1, new String(Files.readAllBytes(file.toPath())).indexOf("ASIAEXAMPLE"));
+        }
+
+        SessionCredentialsStore restarted =
+                new SessionCredentialsStore(tmp.getRoot().toPath());
+        assertNull(
+                restarted.load(
+                        new SessionCredentialsCache.Key("b", "arn:aws:iam::123456789012:role/b", null, 3600), "fp"));
+        assertNull(restarted.load(key, "other"));
+        SessionCredentialsStore.Stored stored = restarted.load(key, "fp");
+        assertNotNull(stored);
+        assertEquals("fp", stored.fingerprint);
+        assertEquals(session, stored.session);
+        // read once only, later sessions are in memory
+        assertNull(restarted.load(key, "fp"));
+    }
+
+    @Test
+    public void dropsExpiredAndDeletedSessions() throws Exception {
+        SessionCredentialsStore store =
+                new SessionCredentialsStore(tmp.getRoot().toPath());
+        AwsSessionCredentials expired = session(-1);
+        store.save(key, "fp", expired, expired.expirationTime().get());
+        store.flush();
+        assertNull(new SessionCredentialsStore(tmp.getRoot().toPath()).load(key, "fp"));
+        assertEquals(0, Objects.requireNonNull(tmp.getRoot().list()).length);
+
+        AwsSessionCredentials session = session(3600);
+        store.save(key, "fp", session, session.expirationTime().get());
+        store.delete(key, "fp");
+        store.flush();
+        assertNull(new SessionCredentialsStore(tmp.getRoot().toPath()).load(key, "fp"));
+    }
+
+    private static AwsSessionCredentials session(long validitySeconds) {
+        return AwsSessionCredentials.builder()
+                .accessKeyId("ASIAEXAMPLE")
+                .secretAccessKey("secret")
+                .sessionToken("token")
+                .expirationTime(Instant.now().plusSeconds(validitySeconds))
+                .build();
+    }
+}
@@ -0,0 +1,88 @@
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import software.amazon.awssdk.services.sts.StsClient;
+
+public class SharedDefaultCredentialsProviderTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Rule
+    public StsStub sts = new StsStub();
+
+    @Before
+    public void setUp() {
+        AWSCredentialsConfiguration.get().setRegion("us-east-1");
+        StsClientRegistry.ENDPOINT = sts.getEndpoint();
+        // first in the default chain, standing in for the instance profile
+        System.setProperty("aws.accessKeyId", "AKIAINSTANCE");
+        System.setProperty("aws.secretAccessKey", "instanceSecret");
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty("aws.accessKeyId");
+        System.clearProperty("aws.secretAccessKey");
+        AWSCredentialsConfiguration.get().setStsMaxAttempts(AWSCredentialsConfiguration.DEFAULT_STS_MAX_ATTEMPTS);
+        StsClientRegistry.ENDPOINT = null;
+        StsClientRegistry.get().closeAll();
+        SessionCredentialsCache.get().clear();
+        SharedDefaultCredentialsProvider.shutdown();
+    }
+
+    @Test
+    public void sharesOneProviderAcrossClients() {
+        role("a").resolveCredentials();
+        role("b").resolveCredentials();
+        assertEquals(2, sts.getRequests());
+        // the credentials without keys share the client of the default chain
+        assertEquals(1, StsClientRegistry.get().size());
+
+        StsClient first = defaultChainClient();
+        AWSCredentialsConfiguration.get().setStsMaxAttempts(1);
+        StsClient second = defaultChainClient();
+        assertNotSame(first, second);
+        assertSame(
+                SharedDefaultCredentialsProvider.get(),
+                first.serviceClientConfiguration().credentialsProvider());
+        assertSame(
+                SharedDefaultCredentialsProvider.get(),
+                second.serviceClientConfiguration().credentialsProvider());
+    }
+
+    @Test
+    public void keepsWorkingAfterShutdown() {
+        role("a").resolveCredentials();
+        SharedDefaultCredentialsProvider.shutdown();
+        assertEquals(
+                "AKIAINSTANCE",
+                SharedDefaultCredentialsProvider.get().resolveCredentials().accessKeyId());
+
+        // including in the clients built before
+        SessionCredentialsCache.get().clear();
+        role("a").resolveCredentials();
+        assertEquals(2, sts.getRequests());
+        assertEquals(1, StsClientRegistry.get().size());
+    }
+
+    private static AWSCredentialsImpl role(String id) {
+        return new AWSCredentialsImpl(
+                CredentialsScope.GLOBAL, id, "", "", "", "arn:aws:iam::123456789012:role/" + id, null, null);
+    }
+
+    private static StsClient defaultChainClient() {
+        return StsClientRegistry.get()
+                .getClient(
+                        null, null, StsClientRegistry.DEFAULT_CHAIN_IDENTITY, SharedDefaultCredentialsProvider.get());
+    }
+}
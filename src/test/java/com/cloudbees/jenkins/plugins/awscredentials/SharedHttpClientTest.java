@@ -0,0 +1,41 @@
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import hudson.ProxyConfiguration;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import software.amazon.awssdk.http.SdkHttpClient;
+
+public class SharedHttpClientTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @After
+    public void tearDown() {
+        SharedHttpClient.shutdown();
+    }
+
+    @Test
+    public void rebuildsTheClientWhenItsSettingsAreSaved() throws Exception {
+        SdkHttpClient first = SharedHttpClient.get();
+        long created = CredentialsMetrics.HTTP_CLIENTS_CREATED.get();
+        assertSame(first, SharedHttpClient.get());
+
+        AWSCredentialsConfiguration config = AWSCredentialsConfiguration.get();
+        config.setHttpMaxConnections(config.getHttpMaxConnections() + 1);
+        config.save();
+        SdkHttpClient second = SharedHttpClient.get();
+        assertNotSame(first, second);
+
+        j.jenkins.proxy = new ProxyConfiguration("proxy.example.com", 3128);
+        j.jenkins.proxy.save();
+        assertNotSame(second, SharedHttpClient.get());
+        assertEquals(created + 2, CredentialsMetrics.HTTP_CLIENTS_CREATED.get());
+    }
+}
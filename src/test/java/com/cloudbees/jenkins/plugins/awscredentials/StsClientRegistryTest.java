@@ -0,0 +1,38 @@
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.After;
+import org.junit.Test;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.services.sts.StsClient;
+
+public class StsClientRegistryTest {
+
+    private final StsClientRegistry registry = StsClientRegistry.get();
+
+    private final StaticCredentialsProvider provider =
+            StaticCredentialsProvider.create(AwsBasicCredentials.create("AKIAEXAMPLE", "secret"));
+
+    @After
+    public void closeAll() {
+        registry.closeAll();
+    }
+
+    @Test
+    public void closesOnlyClientsIdleSinceTheirLastUse() {
+        long before = System.currentTimeMillis();
+        StsClient client = registry.getClient("a", "fp", "keys", provider);
+        // a cleaner that started before the client was handed out must not close it
+        registry.closeIdle(before);
+        assertEquals(1, registry.size());
+        assertSame(client, registry.getClient("a", "fp", "keys", provider));
+
+        registry.closeIdle(System.currentTimeMillis() + StsClientRegistry.IDLE_TIMEOUT_MILLIS + 1);
+        assertEquals(0, registry.size());
+        assertNotSame(client, registry.getClient("a", "fp", "keys", provider));
+    }
+}
@@ -0,0 +1,67 @@
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class StsRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final StsRateLimiter limiter = new StsRateLimiter("us-east-1|123456789012", "123456789012", "us-east-1");
+
+    @Test
+    public void queuesCallsOverTheRate() {
+        StsRateLimiter.Rule rule = new StsRateLimiter.Rule(null, null, 2, 2);
+        long now = System.nanoTime() + SECOND;
+        assertEquals(0, limiter.reserve(now, rule));
+        assertEquals(0, limiter.reserve(now, rule));
+        // then one every half second, in order
+        assertEquals(0, limiter.reserve(now, rule));
+        assertEquals(SECOND / 2, limiter.reserve(now, rule));
+        assertEquals(SECOND, limiter.reserve(now, rule));
+        // no limit
+        assertEquals(0, limiter.reserve(now, new StsRateLimiter.Rule(null, null, 0, 1)));
+    }
+
+    @Test
+    public void slowsDownWhenThrottledThenRecovers() {
+        StsRateLimiter.Rule rule = new StsRateLimiter.Rule(null, null, 10, 10);
+        long now = System.nanoTime() + SECOND;
+        limiter.reserve(now, rule);
+        limiter.throttled(now);
+        assertEquals(5, limiter.getRate(), 0);
+        // calls throttled together count once
+        limiter.throttled(now + 1);
+        assertEquals(5, limiter.getRate(), 0);
+        // pauses for one to two intervals of the lowered rate
+        long wait = limiter.reserve(now, rule);
+        assertTrue(String.valueOf(wait), wait >= SECOND / 5 && wait <= 2 * SECOND / 5);
+
+        limiter.succeeded(now + SECOND);
+        assertEquals(6, limiter.getRate(), 0.001);
+        limiter.succeeded(now + 2 * SECOND);
+        limiter.succeeded(now + 10 * SECOND);
+        limiter.succeeded(now + 20 * SECOND);
+        limiter.succeeded(now + 30 * SECOND);
+        limiter.succeeded(now + 40 * SECOND);
+        assertEquals(10, limiter.getRate(), 0);
+    }
+
+    @Test
+    public void parsesOverrides() {
+        List<StsRateLimiter.Rule> rules =
+                StsRateLimiter.parse("123456789012 = 10\n@us-east-1=20/5\n# comment\n*@eu-west-1=0");
+        assertEquals(3, rules.size());
+        assertEquals(2, rules.get(0).score("123456789012", "us-east-1"));
+        assertEquals(-1, rules.get(0).score("210987654321", "us-east-1"));
+        assertEquals(1, rules.get(1).score("210987654321", "us-east-1"));
+        assertEquals(-1, rules.get(2).score("210987654321", "us-east-1"));
+        assertThrows(IllegalArgumentException.class, () -> StsRateLimiter.parse("=10"));
+        assertThrows(IllegalArgumentException.class, () -> StsRateLimiter.parse("123456789012=fast"));
+    }
+}
@@ -0,0 +1,181 @@
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+import software.amazon.awssdk.core.exception.ApiCallTimeoutException;
+import software.amazon.awssdk.services.sts.model.StsException;
+
+public class StsResilienceTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Rule
+    public StsStub sts = new StsStub();
+
+    private AWSCredentialsConfiguration config;
+
+    private AWSCredentialsImpl credentials;
+
+    @Before
+    public void setUp() {
+        config = AWSCredentialsConfiguration.get();
+        config.setRegion("us-east-1");
+        config.setSessionRefreshAhead(false);
+        credentials = new AWSCredentialsImpl(
+                CredentialsScope.GLOBAL,
+                "role",
+                "AKIAEXAMPLE",
+                "secret",
+                "",
+                "arn:aws:iam::123456789012:role/test",
+                null,
+                null);
+        StsClientRegistry.ENDPOINT = sts.getEndpoint();
+    }
+
+    @After
+    public void tearDown() {
+        StsClientRegistry.ENDPOINT = null;
+        StsClientRegistry.get().closeAll();
+        SessionCredentialsCache.get().clear();
+        StsCircuitBreaker.reset();
+        StsRateLimiter.reset();
+    }
+
+    @Test
+    public void slowCallsTimeOut() {
+        config.setStsApiCallTimeoutSeconds(1);
+        sts.setLatencyMillis(3000);
+        assertThrows(ApiCallTimeoutException.class, credentials::resolveCredentials);
+    }
+
+    @Test
+    public void retriesUpToMaxAttempts() {
+        config.setStsMaxAttempts(2);
+        sts.failWith(500, "InternalFailure");
+        assertThrows(StsException.class, credentials::resolveCredentials);
+        assertEquals(2, sts.getRequests());
+    }
+
+    @Test
+    public void failsFastOnceCircuitIsOpen() throws Exception {
+        config.setStsMaxAttempts(1);
+        config.setStsCircuitBreakerThreshold(3);
+        config.setStsCircuitBreakerOpenSeconds(1);
+        sts.failWith(503, "ServiceUnavailable");
+        for (int i = 0; i < 3; i++) {
+            assertThrows(StsException.class, credentials::resolveCredentials);
+        }
+        assertThrows(StsCircuitBreaker.OpenException.class, credentials::resolveCredentials);
+        sts.recover();
+        assertThrows(StsCircuitBreaker.OpenException.class, credentials::resolveCredentials);
+        assertEquals(3, sts.getRequests());
+
+        Thread.sleep(1100);
+        assertEquals("token4", ((AwsSessionCredentials) credentials.resolveCredentials()).sessionToken());
+        assertEquals(4, sts.getRequests());
+    }
+
+    @Test
+    public void countsThrottledAttemptsRetriedSuccessfully() {
+        long throttles = CredentialsMetrics.STS_THROTTLES.get();
+        sts.failWith(400, "Throttling", 2);
+        credentials.resolveCredentials();
+        assertEquals(3, sts.getRequests());
+        assertEquals(throttles + 2, CredentialsMetrics.STS_THROTTLES.get());
+    }
+
+    @Test
+    public void slowsDownWhenThrottled() {
+        config.setStsRateLimit(10);
+        long waits = CredentialsMetrics.STS_RATE_LIMIT_WAIT.getCount();
+        sts.failWith(400, "Throttling", 2);
+        credentials.resolveCredentials();
+        assertEquals(3, sts.getRequests());
+        // every attempt waits for its turn
+        assertEquals(waits + 3, CredentialsMetrics.STS_RATE_LIMIT_WAIT.getCount());
+        // and the throttled ones slow the calls of the base credentials down
+        StsRateLimiter limiter = StsRateLimiter.get(
+                "us-east-1=" + sts.getEndpoint(), AWSCredentialsImpl.fingerprint("AKIAEXAMPLE", "secret"));
+        assertTrue(limiter.getRate() <= 5);
+    }
+
+    @Test
+    public void slowsDownTheAccountCallingSts() throws Exception {
+        config.setStsRateLimit(10);
+        credentials.resolveCredentials();
+        sts.failWith("AssumeRole", 400, "Throttling", 1);
+        AmazonWebServicesCredentialsBinding.assumeRoleProvider(
+                        credentials, "arn:aws:iam::210987654321:role/chained", null, 0)
+                .resolveCredentials();
+        // the role session of the base credentials calls STS from their account
+        String endpoint = "us-east-1=" + sts.getEndpoint();
+        assertEquals(5, StsRateLimiter.get(endpoint, "123456789012").getRate(), 0);
+        assertEquals(
+                10,
+                StsRateLimiter.get(endpoint, AWSCredentialsImpl.fingerprint("AKIAEXAMPLE", "secret"))
+                        .getRate(),
+                0);
+    }
+
+    @Test
+    public void pacesLongTermKeysByTheirAccount() throws Exception {
+        config.setStsRateLimits("123456789012 = 100");
+        AWSCredentialsImpl keys =
+                new AWSCredentialsImpl(CredentialsScope.GLOBAL, "keys", "AKIAEXAMPLE", "secret", "");
+        // looked up in the background the first time
+        assertFalse(((AwsBasicCredentials) keys.resolveCredentials()).accountId().isPresent());
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!((AwsBasicCredentials) keys.resolveCredentials()).accountId().isPresent()) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(50);
+        }
+        assertEquals("123456789012", ((AwsBasicCredentials) keys.resolveCredentials()).accountId().get());
+        credentials.resolveCredentials();
+        assertEquals(Arrays.asList("GetCallerIdentity", "AssumeRole"), sts.getActions());
+        // the role is assumed from the account of the keys, with the rate of the account
+        String endpoint = "us-east-1=" + sts.getEndpoint();
+        assertEquals(100, StsRateLimiter.get(endpoint, "123456789012").getRate(), 0);
+    }
+
+    @Test
+    public void leavesTheRateLimitWaitOutOfTheLatency() {
+        config.setStsRateLimit(1);
+        long latency = CredentialsMetrics.STS_ASSUME_ROLE.getTotalNanos();
+        long wait = CredentialsMetrics.STS_RATE_LIMIT_WAIT.getTotalNanos();
+        for (int i = 0; i < 3; i++) {
+            credentials.assumeRole();
+        }
+        assertTrue(CredentialsMetrics.STS_RATE_LIMIT_WAIT.getTotalNanos() - wait > TimeUnit.MILLISECONDS.toNanos(500));
+        assertTrue(CredentialsMetrics.STS_ASSUME_ROLE.getTotalNanos() - latency < TimeUnit.MILLISECONDS.toNanos(500));
+    }
+
+    @Test
+    public void servesValidSessionWhileStsFails() {
+        // sessions are renewed on every use, yet remain valid for an hour
+        config.setSessionExpiryMarginSeconds(3600);
+        config.setStsMaxAttempts(1);
+        AwsSessionCredentials session = (AwsSessionCredentials) credentials.resolveCredentials();
+        sts.failWith(500, "InternalFailure");
+        assertEquals(session, credentials.resolveCredentials());
+        assertEquals(2, sts.getRequests());
+
+        // not when STS rejects the credentials
+        sts.failWith(403, "AccessDenied");
+        assertThrows(StsException.class, credentials::resolveCredentials);
+    }
+}
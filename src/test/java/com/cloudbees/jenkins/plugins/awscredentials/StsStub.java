@@ -0,0 +1,184 @@
+package com.cloudbees.jenkins.plugins.awscredentials;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.rules.ExternalResource;
+
+/**
+ * Local stand-in for STS answering {@code AssumeRole}, {@code GetSessionToken} and {@code GetCallerIdentity} requests at {@link #getEndpoint()}.
+ */
+public class StsStub extends ExternalResource {
+
+    private static final Pattern ACTION = Pattern.compile("(?:^|&)Action=(\\w+)");
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private final List<String> actions = new CopyOnWriteArrayList<>();
+
+    private HttpServer server;
+
+    private volatile long latencyMillis;
+
+    private volatile int status = 200;
+
+    private volatile String errorCode;
+
+    /**
+     * The only action that fails, {@code null} for all of them.
+     */
+    private volatile String failingAction;
+
+    /**
+     * How many more requests fail, negative for all of them.
+     */
+    private final AtomicInteger failuresLeft = new AtomicInteger(-1);
+
+    /**
+     * How long the sessions last by action, instead of an hour for roles and 12 hours for MFA sessions.
+     */
+    private final Map<String, Duration> sessionDurations = new ConcurrentHashMap<>();
+
+    @Override
+    protected void before() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    @Override
+    protected void after() {
+        server.stop(0);
+    }
+
+    public String getEndpoint() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public int getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * The actions called so far, in order.
+     */
+    public List<String> getActions() {
+        return actions;
+    }
+
+    /**
+     * Delays the responses, so that concurrent callers overlap.
+     */
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * Makes the requests fail with the given HTTP status and STS error code.
+     */
+    public void failWith(int status, String errorCode) {
+        failWith(status, errorCode, -1);
+    }
+
+    /**
+     * Makes the next {@code times} requests fail with the given HTTP status and STS error code.
+     */
+    public void failWith(int status, String errorCode, int times) {
+        failWith(null, status, errorCode, times);
+    }
+
+    /**
+     * Makes the next {@code times} requests for the given action fail with the given HTTP status and STS error code.
+     */
+    public void failWith(String action, int status, String errorCode, int times) {
+        this.failingAction = action;
+        this.status = status;
+        this.errorCode = errorCode;
+        this.failuresLeft.set(times);
+    }
+
+    /**
+     * Sets how long the sessions handed out by an action last.
+     */
+    public void setSessionDuration(String action, Duration duration) {
+        sessionDurations.put(action, duration);
+    }
+
+    /**
+     * Makes the requests succeed again.
+     */
+    public void recover() {
+        this.errorCode = null;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int n = requests.incrementAndGet();
+        String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        Matcher m = ACTION.matcher(request);
+        String action = m.find() ? m.group(1) : "AssumeRole";
+        actions.add(action);
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        String errorCode = failingAction == null || failingAction.equals(action) ? this.errorCode : null;
+        if (errorCode != null && failuresLeft.getAndUpdate(left -> left > 0 ? left - 1 : left) == 0) {
+            errorCode = null;
+        }
+        String body;
+        if (errorCode == null && "GetCallerIdentity".equals(action)) {
+            body = "<GetCallerIdentityResponse xmlns=\"https://sts.amazonaws.com/doc/2011-06-15/\">"
+                    + "<GetCallerIdentityResult>"
+                    + "<Arn>arn:aws:iam::123456789012:user/stub</Arn>"
+                    + "<UserId>AIDASTUB</UserId>"
+                    + "<Account>123456789012</Account>"
+                    + "</GetCallerIdentityResult>"
+                    + "<ResponseMetadata><RequestId>" + n + "</RequestId></ResponseMetadata>"
+                    + "</GetCallerIdentityResponse>";
+        } else if (errorCode == null) {
+            body = "<" + action + "Response xmlns=\"https://sts.amazonaws.com/doc/2011-06-15/\">"
+                    + "<" + action + "Result><Credentials>"
+                    + "<AccessKeyId>ASIASTUB" + n + "</AccessKeyId>"
+                    + "<SecretAccessKey>secret" + n + "</SecretAccessKey>"
+                    + "<SessionToken>token" + n + "</SessionToken>"
+                    + "<Expiration>"
+                    + Instant.now()
+                            .plus(sessionDurations.getOrDefault(
+                                    action, Duration.ofHours("GetSessionToken".equals(action) ? 12 : 1)))
+                            .truncatedTo(ChronoUnit.SECONDS)
+                    + "</Expiration>"
+                    + "</Credentials><AssumedRoleUser>"
+                    + "<Arn>arn:aws:sts::123456789012:assumed-role/test/session</Arn>"
+                    + "<AssumedRoleId>AROASTUB:session</AssumedRoleId>"
+                    + "</AssumedRoleUser></" + action + "Result>"
+                    + "<ResponseMetadata><RequestId>" + n + "</RequestId></ResponseMetadata>"
+                    + "</" + action + "Response>";
+        } else {
+            body = "<ErrorResponse xmlns=\"https://sts.amazonaws.com/doc/2011-06-15/\">"
+                    + "<Error><Type>Sender</Type><Code>" + errorCode + "</Code><Message>stub</Message></Error>"
+                    + "<RequestId>" + n + "</RequestId>"
+                    + "</ErrorResponse>";
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/xml");
+        exchange.sendResponseHeaders(errorCode == null ? 200 : status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}